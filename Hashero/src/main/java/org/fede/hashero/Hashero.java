@@ -33,6 +33,7 @@ import java.awt.event.WindowEvent;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.security.NoSuchAlgorithmException;
 
 import java.util.ArrayList;
@@ -62,7 +63,10 @@ import javax.swing.border.Border;
 import jonelo.jacksum.JacksumAPI;
 import jonelo.jacksum.algorithm.AbstractChecksum;
 import jonelo.jacksum.algorithm.CombinedChecksum;
+import jonelo.jacksum.concurrent.ConcurrentHasher;
 import jonelo.jacksum.concurrent.HashAlgorithm;
+import jonelo.jacksum.concurrent.Pair;
+import jonelo.jacksum.concurrent.ProgressListener;
 /**
  * 
  * @author Federico Tello Gentile <federicotg@gmail.com>
@@ -375,10 +379,18 @@ public class Hashero extends JFrame {
                     // Desactiva el botón mientras se procesan los datos
                     button.setEnabled(false);
                     // Genera un objeto SwingWorker para evitar bloquear la ventana
-                    new SwingWorker<List<HashResult>, Object>() {
+                    new SwingWorker<List<HashResult>, Pair<String, Integer>>() {
 
                         private long ms = 0L;
 
+                        // Muestra el porcentaje procesado por cada algoritmo
+                        @Override
+                        protected void process(List<Pair<String, Integer>> chunks) {
+                            for (Pair<String, Integer> progress : chunks) {
+                                setHashProgress(progress.getFirst(), progress.getSecond());
+                            }
+                        }
+
                         @Override
                         protected void done() {
                             List<HashResult> hashes;
@@ -411,7 +423,13 @@ public class Hashero extends JFrame {
                         @Override
                         protected List<HashResult> doInBackground() throws Exception {
                             this.ms = System.currentTimeMillis();
-                            List<HashResult> answer = callFileJacksum(fichero, selection);
+                            final long size = new File(fichero).length();
+                            List<HashResult> answer = callFileJacksum(fichero, selection, new ProgressListener() {
+                                @Override
+                                public void bytesHashed(Path file, String algorithm, long bytes) {
+                                    publish(new Pair<>(algorithm, (int) (bytes * 100 / Math.max(1, size))));
+                                }
+                            });
                             this.ms = System.currentTimeMillis() - ms;
                             return answer;
                         }
@@ -463,18 +481,19 @@ public class Hashero extends JFrame {
         return null;
     }
 
-    private List<HashResult> callFileJacksum(String f, List<String> algorithms) {
+    private List<HashResult> callFileJacksum(String f, List<String> algorithms, ProgressListener listener) {
         try {
-            String[] str = new String[algorithms.size()];
-            AbstractChecksum ccs = new CombinedChecksum(algorithms.toArray(str), false);
-            ccs.readFile(f);
-            String result = ccs.format("#ALGONAME{i}\n#CHECKSUM{i}");
-            //System.out.println(result);
-            String[] parts = result.split("\\n");
-            List<HashResult> answer = new ArrayList<>(algorithms.size());
+            List<HashAlgorithm> hashes = new ArrayList<>(algorithms.size());
+            for (String algorithm : algorithms) {
+                hashes.add(HashAlgorithm.getAlgorithm(JacksumAPI.getChecksumInstance(algorithm)));
+            }
+            ConcurrentHasher hasher = new ConcurrentHasher();
+            hasher.setProgressListener(listener);
+            hasher.updateHashes(new File(f), hashes);
+            List<HashResult> answer = new ArrayList<>(hashes.size());
 
-            for (int i = 0; i < parts.length; i += 2) {
-                answer.add(new HashResult(parts[i], parts[i + 1]));
+            for (HashAlgorithm hash : hashes) {
+                answer.add(new HashResult(hash.getName(), hash.getChecksum().getFormattedValue()));
             }
             return answer;
 
@@ -517,11 +536,25 @@ public class Hashero extends JFrame {
             if (tf == null) {
                 System.err.println(res.getName());
             }
+            tf.setValue(HashAlgorithm.getWeight(res.getName()));
             tf.setString(result);
             tf.setToolTipText(result);
         }
     }
 
+    /**
+     * Muestra cuánto del fichero procesó un algoritmo
+     * @param name nombre del algoritmo
+     * @param percent porcentaje procesado
+     */
+    private void setHashProgress(String name, int percent) {
+        JProgressBar tf = this.progressBars.get(name);
+        if (tf != null) {
+            tf.setValue(tf.getMaximum() * percent / 100);
+            tf.setString(percent + " %");
+        }
+    }
+
     /**
      * Obtiene la ruta del fichero cuyo resumen queremos calcular
      * @param evt Evento generado
@@ -578,7 +611,9 @@ public class Hashero extends JFrame {
      */
     private void resetText() {
         // Recorre los campos de texto limpiándolos
-        for (JProgressBar tf : this.progressBars.values()) {
+        for (Map.Entry<String, JProgressBar> bar : this.progressBars.entrySet()) {
+            JProgressBar tf = bar.getValue();
+            tf.setValue(HashAlgorithm.getWeight(bar.getKey()));
             tf.setString("");
             tf.setToolTipText("");
 
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2015 Federico Tello Gentile <federicotg@gmail.com>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.fede.jacksum2.test;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Adler32;
+import jonelo.jacksum.algorithm.Adler32alt;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The pure Java Adler-32 against the JDK's, which calls zlib, one megabyte
+ * fed in updates of a given size. Small updates are where the call costs.
+ *
+ * @author Federico Tello Gentile <federicotg@gmail.com>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class Adler32Benchmark {
+
+    private static final int SIZE = 1024 * 1024;
+
+    @Param({"16", "256", "65536"})
+    public int updateSize;
+
+    private final Adler32 zlib = new Adler32();
+    private final Adler32alt alternate = new Adler32alt();
+    private byte[] bytes;
+
+    @Setup
+    public void createBuffer() {
+        this.bytes = new byte[SIZE];
+        new Random(42).nextBytes(this.bytes);
+    }
+
+    @Benchmark
+    public long zlib() {
+        this.zlib.reset();
+        for (int i = 0; i < SIZE; i += this.updateSize) {
+            this.zlib.update(this.bytes, i, this.updateSize);
+        }
+        return this.zlib.getValue();
+    }
+
+    @Benchmark
+    public long alternate() {
+        this.alternate.reset();
+        for (int i = 0; i < SIZE; i += this.updateSize) {
+            this.alternate.update(this.bytes, i, this.updateSize);
+        }
+        return this.alternate.getValue();
+    }
+}
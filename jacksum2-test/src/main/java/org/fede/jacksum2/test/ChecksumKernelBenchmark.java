@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2015 Federico Tello Gentile <federicotg@gmail.com>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.fede.jacksum2.test;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import jonelo.jacksum.algorithm.AbstractChecksum;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Feeds a buffer already in memory to a checksum, so only the update loop is
+ * measured and not the disk.
+ *
+ * @author Federico Tello Gentile <federicotg@gmail.com>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ChecksumKernelBenchmark {
+
+    private static final int SIZE = 1024 * 1024;
+
+    @Param({"crc32", "crc24", "crc32_bzip2", "crc64", "sum8", "sum32", "sumsysv", "sumbsd", "xor8", "elf"})
+    public String algorithm;
+
+    private AbstractChecksum checksum;
+    private byte[] bytes;
+    private ByteBuffer direct;
+
+    @Setup
+    public void createBuffer() {
+        this.checksum = BenchmarkUtil.getChecksum(this.algorithm);
+        this.bytes = new byte[SIZE];
+        new Random(42).nextBytes(this.bytes);
+        this.direct = ByteBuffer.allocateDirect(SIZE);
+        this.direct.put(this.bytes);
+        // through Buffer, the covariant ByteBuffer.flip is not in Java 8.
+        ((Buffer) this.direct).flip();
+    }
+
+    @Benchmark
+    public long update() {
+        this.checksum.reset();
+        this.checksum.update(this.bytes, 0, this.bytes.length);
+        return this.checksum.getValue();
+    }
+
+    // like a memory mapped file.
+    @Benchmark
+    public long updateDirect() {
+        this.checksum.reset();
+        this.checksum.update(this.direct.duplicate());
+        return this.checksum.getValue();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2015 Federico Tello Gentile <federicotg@gmail.com>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.fede.jacksum2.test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import jonelo.jacksum.algorithm.Algorithm;
+import jonelo.jacksum.algorithm.CombinedChecksum;
+import jonelo.jacksum.concurrent.ConcurrentHasher;
+import jonelo.jacksum.concurrent.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+/**
+ * Measures the concurrent pipeline with cheap algorithms so the cost of moving
+ * blocks around is not hidden by the hashing itself.
+ *
+ * Run it with the GC profiler (-prof gc) to see the allocation per operation.
+ * With pooled blocks it should stay around the size of the pool instead of
+ * growing with the size of the file.
+ *
+ * @author Federico Tello Gentile <federicotg@gmail.com>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ConcurrentBenchmark {
+
+    private static final String FILE = "/home/fede/NetBeansProjects/ipc-address-calc-old.tar.xz";
+
+    private static final List<Algorithm> CHEAP = Arrays.asList(Algorithm.CRC32, Algorithm.ADLER32, Algorithm.MD5);
+
+    private static final String[] CHEAP_NAMES = new String[]{"crc32", "adler32", "md5"};
+
+    @Benchmark
+    public Map<Pair<Path, Algorithm>, byte[]> hashFilesCheap() throws NoSuchAlgorithmException, InterruptedException, ExecutionException {
+        return new ConcurrentHasher().hashFiles(
+                Collections.singletonList(Paths.get(FILE)),
+                CHEAP,
+                false,
+                Collections.<String>emptyList());
+    }
+
+    @Benchmark
+    public byte[] updateHashesCheap() throws NoSuchAlgorithmException, IOException {
+        CombinedChecksum cc = new CombinedChecksum(CHEAP_NAMES, false);
+        cc.readFileConcurrent(FILE, true);
+        return cc.getByteArray();
+    }
+
+}
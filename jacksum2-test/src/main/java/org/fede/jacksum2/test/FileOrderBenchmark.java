@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2015 Federico Tello Gentile <federicotg@gmail.com>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.fede.jacksum2.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import jonelo.jacksum.algorithm.Algorithm;
+import jonelo.jacksum.concurrent.ConcurrentHasher;
+import jonelo.jacksum.concurrent.FileOrder;
+import jonelo.jacksum.concurrent.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Hashes a synthetic tree of many small files in every file order.
+ *
+ * Put the tree on a spinning disk with -Djava.io.tmpdir and drop the page
+ * cache before every iteration (sync; echo 3 > /proc/sys/vm/drop_caches),
+ * otherwise the files come from memory and the order makes no difference.
+ *
+ * @author Federico Tello Gentile <federicotg@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FileOrderBenchmark {
+
+    private static final int DIRECTORIES = 64;
+    private static final int FILES_PER_DIRECTORY = 256;
+    private static final int FILE_SIZE = 4096;
+
+    private static final List<Algorithm> CRC32 = Collections.singletonList(Algorithm.CRC32);
+
+    @Param({"SIZE", "INODE", "DIRECTORY", "NONE"})
+    public FileOrder order;
+
+    private Path root;
+    private List<Path> files;
+
+    @Setup
+    public void createTree() throws IOException {
+        this.root = Files.createTempDirectory("jacksum-order");
+        this.files = new ArrayList<Path>(DIRECTORIES * FILES_PER_DIRECTORY);
+        final Random random = new Random(42);
+        final byte[] content = new byte[FILE_SIZE];
+        final List<Path> directories = new ArrayList<Path>(DIRECTORIES);
+        for (int i = 0; i < DIRECTORIES; i++) {
+            directories.add(Files.createDirectory(this.root.resolve("dir" + i)));
+        }
+        // round robin over the directories so walk order is not disk order.
+        for (int j = 0; j < FILES_PER_DIRECTORY; j++) {
+            for (Path directory : directories) {
+                random.nextBytes(content);
+                this.files.add(Files.write(directory.resolve("file" + j), content));
+            }
+        }
+        Collections.shuffle(this.files, random);
+    }
+
+    @TearDown
+    public void deleteTree() throws IOException {
+        for (Path file : this.files) {
+            Files.deleteIfExists(file);
+        }
+        final File[] directories = this.root.toFile().listFiles();
+        if (directories != null) {
+            for (File directory : directories) {
+                Files.deleteIfExists(directory.toPath());
+            }
+        }
+        Files.deleteIfExists(this.root);
+    }
+
+    @Benchmark
+    public Map<Pair<Path, Algorithm>, byte[]> hashTree() throws NoSuchAlgorithmException, InterruptedException, ExecutionException {
+        final ConcurrentHasher hasher = new ConcurrentHasher();
+        hasher.setFileOrder(this.order);
+        return hasher.hashFiles(this.files, CRC32, false, Collections.<String>emptyList());
+    }
+}
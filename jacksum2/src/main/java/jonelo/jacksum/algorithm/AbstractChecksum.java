@@ -30,6 +30,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.text.Format;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
@@ -57,6 +58,8 @@ abstract public class AbstractChecksum implements Checksum {
     public final static String BASE64 = "base64";
     public final static String BUBBLEBABBLE = "bubblebabble";
     public final static int BUFFERSIZE = 8192;
+    // reading files, the hash itself does not care about the size
+    public final static int READ_BUFFERSIZE = 1024 * 1024;
 
     protected long value;
     protected long length;
@@ -70,6 +73,7 @@ abstract public class AbstractChecksum implements Checksum {
     protected Format timestampFormatter;
     protected long timestamp;
     protected String name;
+    private byte[] scratch; // used to copy buffers without a backing array
 
     /**
      * Creates an AbstractChecksum.
@@ -132,6 +136,30 @@ abstract public class AbstractChecksum implements Checksum {
         update(bytes, 0, bytes.length);
     }
 
+    /**
+     * Updates the current checksum with the remaining bytes of the buffer.
+     * The position of the buffer is moved to its limit. Implementations that
+     * can read the buffer directly override this, otherwise buffers without a
+     * backing array are copied through a small scratch array.
+     *
+     * @param buffer the bytes to add
+     */
+    public void update(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+            return;
+        }
+        if (scratch == null) {
+            scratch = new byte[BUFFERSIZE];
+        }
+        while (buffer.hasRemaining()) {
+            final int len = Math.min(scratch.length, buffer.remaining());
+            buffer.get(scratch, 0, len);
+            update(scratch, 0, len);
+        }
+    }
+
     /**
      * Returns the value of the checksum.
      *
@@ -148,6 +176,19 @@ abstract public class AbstractChecksum implements Checksum {
         return length;
     }
 
+    /**
+     * Checks that a checksum can be combined with this one.
+     *
+     * @see Combinable
+     * @throws IllegalArgumentException if it is not the same algorithm.
+     */
+    protected void checkCombinable(AbstractChecksum next) {
+        if (next == null || next.getClass() != this.getClass()) {
+            throw new IllegalArgumentException("Can't combine " + getName() + " with "
+                    + (next == null ? "nothing" : next.getName()));
+        }
+    }
+
     /**
      * Sets the separator for the tokens.
      */
@@ -497,7 +538,7 @@ abstract public class AbstractChecksum implements Checksum {
             }
             lengthBackup = length;
             int len = 0;
-            byte[] buffer = new byte[BUFFERSIZE];
+            byte[] buffer = new byte[(int) Math.min(READ_BUFFERSIZE, Math.max(BUFFERSIZE, new File(filename).length()))];
             while ((len = bis.read(buffer)) > -1) {
                 update(buffer, 0, len);
             }
@@ -23,14 +23,22 @@
  *****************************************************************************/
 
 package jonelo.jacksum.algorithm;
+
+import java.nio.ByteBuffer;
+
 /**
  * A class that can be used to compute the Adler32 of a data stream.
  * This implementation uses the class java.util.zip.Adler32 from the Java Standard API.
  */
 
-public class Adler32 extends AbstractChecksum {
+public class Adler32 extends AbstractChecksum implements Combinable {
     
     private java.util.zip.Adler32 adler32 = null;
+
+    // java.util.zip.Adler32 can't be set to a combined value, so it is kept
+    // here and adler32 only has what came after it.
+    private long prefix = 1;
+    private long prefixLength = 0;
     
     public Adler32() {
         adler32 = new java.util.zip.Adler32();
@@ -41,6 +49,8 @@ public class Adler32 extends AbstractChecksum {
     public void reset() {
         adler32.reset();
         length = 0;
+        prefix = 1;
+        prefixLength = 0;
     }
     
     @Override
@@ -48,10 +58,28 @@ public class Adler32 extends AbstractChecksum {
         adler32.update(buffer, offset, len);
         length += len;
     }
+
+    @Override
+    public void update(ByteBuffer buffer) {
+        length += buffer.remaining();
+        adler32.update(buffer);
+    }
     
+    @Override
+    public void combine(AbstractChecksum next) {
+        checkCombinable(next);
+        prefix = Adler32alt.append(getValue(), next.getValue(), next.length);
+        length += next.length;
+        prefixLength = length;
+        adler32.reset();
+    }
+
     @Override
     public long getValue() {
-        return adler32.getValue();
+        if (prefixLength == 0) {
+            return adler32.getValue();
+        }
+        return Adler32alt.append(prefix, adler32.getValue(), length - prefixLength);
     }
     
     @Override
@@ -31,14 +31,21 @@
 // significant-byte first (network) order.
 
 package jonelo.jacksum.algorithm;
+
+import java.nio.ByteBuffer;
+
 /**
  * A class that can be used to compute the Adler32 of a data stream (alternate).
  * This is a 100% Java implementation.
  */
 
-public class Adler32alt extends AbstractChecksum {
+public class Adler32alt extends AbstractChecksum implements Combinable {
 
     private static final long BASE = 65521L; // largest prime smaller than 65536
+    private static final int NMAX = 5552;     // bytes before s2 may overflow 32 bits
+
+    // callers keep passing the same array, so its view is kept too.
+    private ByteBuffer words;
 
     public Adler32alt() {
         value = 1L;
@@ -52,18 +59,97 @@ public class Adler32alt extends AbstractChecksum {
         length = 0;
     }
 
-    @Override
-    public void update(byte[] buffer, int offset, int len) {
+    /**
+     * Adds the bytes to s1 and s2 without reducing them on every byte, as
+     * zlib does, reducing once every NMAX bytes instead.
+     */
+    private void update(ByteBuffer words, int from, int to) {
         long s1 = value & 0xffff;
         long s2 = (value >> 16) & 0xffff;
 
-        for (int n=offset; n < len + offset; n++) {
-            s1 = (s1 + (buffer[n] & 0xff)) % BASE;
-            s2 = (s2 + s1)                 % BASE;
+        int n = from;
+        while (n < to) {
+            final int end = n + Math.min(NMAX, to - n);
+            for (; n + 8 <= end; n += 8) {
+                final long word = words.getLong(n);
+                s1 += word & 0xff;
+                s2 += s1;
+                s1 += (word >>> 8) & 0xff;
+                s2 += s1;
+                s1 += (word >>> 16) & 0xff;
+                s2 += s1;
+                s1 += (word >>> 24) & 0xff;
+                s2 += s1;
+                s1 += (word >>> 32) & 0xff;
+                s2 += s1;
+                s1 += (word >>> 40) & 0xff;
+                s2 += s1;
+                s1 += (word >>> 48) & 0xff;
+                s2 += s1;
+                s1 += word >>> 56;
+                s2 += s1;
+            }
+            for (; n < end; n++) {
+                s1 += words.get(n) & 0xff;
+                s2 += s1;
+            }
+            s1 %= BASE;
+            s2 %= BASE;
         }
 
         value = (s2 << 16) | s1;
-        length+=len;
+    }
+
+    @Override
+    public void update(byte[] buffer, int offset, int len) {
+        this.words = Words.view(this.words, buffer);
+        this.update(this.words, offset, offset + len);
+        length += len;
+    }
+
+    @Override
+    public void update(ByteBuffer buffer) {
+        final int len = buffer.remaining();
+        final int limit = buffer.limit();
+        this.update(Words.view(buffer), buffer.position(), limit);
+        buffer.position(limit);
+        length += len;
+    }
+
+    @Override
+    public void combine(AbstractChecksum next) {
+        checkCombinable(next);
+        value = append(value, next.value, next.length);
+        length += next.length;
+    }
+
+    /**
+     * adler32_combine from zlib.
+     *
+     * @param first the Adler-32 of the first part.
+     * @param second the Adler-32 of the second part.
+     * @param secondLength bytes in the second part.
+     * @return the Adler-32 of both parts.
+     */
+    static long append(long first, long second, long secondLength) {
+        final long rem = secondLength % BASE;
+        long s1 = first & 0xffff;
+        long s2 = (rem * s1) % BASE;
+        s1 += (second & 0xffff) + BASE - 1;
+        s2 += ((first >> 16) & 0xffff) + ((second >> 16) & 0xffff) + BASE - rem;
+        if (s1 >= BASE) {
+            s1 -= BASE;
+        }
+        if (s1 >= BASE) {
+            s1 -= BASE;
+        }
+        if (s2 >= (BASE << 1)) {
+            s2 -= (BASE << 1);
+        }
+        if (s2 >= BASE) {
+            s2 -= BASE;
+        }
+        return (s2 << 16) | s1;
     }
 
     @Override
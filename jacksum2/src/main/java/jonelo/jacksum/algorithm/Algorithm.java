@@ -37,7 +37,7 @@ public enum Algorithm {
 
     ADLER32("Adler 32", "adler32", "adler-32") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) {
+                protected AbstractChecksum newChecksum(boolean alternate) {
                     if (alternate) {
                         return new Adler32alt();
                     }
@@ -46,19 +46,19 @@ public enum Algorithm {
             },
     CKSUM("cksum (Unix)", "cksum") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) {
+                protected AbstractChecksum newChecksum(boolean alternate) {
                     return new Cksum();
                 }
             },
     CRC16("CRC-16 (LHA/ARC)", "crc16", "crc-16") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) {
+                protected AbstractChecksum newChecksum(boolean alternate) {
                     return new Crc16();
                 }
             },
     CRC24("CRC-24 (Open PGP)", "crc24", "crc-24") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) throws NoSuchAlgorithmException {
+                protected AbstractChecksum newChecksum(boolean alternate) throws NoSuchAlgorithmException {
                     CrcGeneric answer = new CrcGeneric(24, 0x864CFB, 0xB704CEL, false, false, 0);
                     answer.setName(this.getCanonicalName());
                     return answer;
@@ -66,7 +66,7 @@ public enum Algorithm {
             },
     CRC32("CRC-32 (FCS-32)", "crc32", "crc-32", "fcs32", "fcs-32") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) {
+                protected AbstractChecksum newChecksum(boolean alternate) {
                     if (alternate) {
                         return new FCS32();
                     }
@@ -76,7 +76,7 @@ public enum Algorithm {
             },
     CRC32_BZIP2("CRC-32 (BZIP2)", "crc32_bzip2", "crc-32_bzip-2") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) throws NoSuchAlgorithmException {
+                protected AbstractChecksum newChecksum(boolean alternate) throws NoSuchAlgorithmException {
                     CrcGeneric answer = new CrcGeneric(32, 0x04C11DB7, 0xFFFFFFFFL, false, false, 0xFFFFFFFFL);
                     answer.setName(this.getCanonicalName());
                     return answer;
@@ -84,19 +84,19 @@ public enum Algorithm {
             },
     CRC32_MPEG2("CRC-32 (MPEG-2)", "crc32_mpeg2", "crc-32_mpeg-2") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) {
+                protected AbstractChecksum newChecksum(boolean alternate) {
                     return new Crc32Mpeg2();
                 }
             },
     CRC64("CRC-64 (ISO 3309)", "crc64", "crc-64") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) {
+                protected AbstractChecksum newChecksum(boolean alternate) {
                     return new Crc64();
                 }
             },
     CRC8("CRC-8 (FLAC)", "crc8", "crc-8") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) {
+                protected AbstractChecksum newChecksum(boolean alternate) {
                     return new Crc8();
                 }
             },
@@ -108,25 +108,25 @@ public enum Algorithm {
             },
     ED2K("ed2k", "ed2k", "emule", "edonkey") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) throws NoSuchAlgorithmException {
+                protected AbstractChecksum newChecksum(boolean alternate) throws NoSuchAlgorithmException {
                     return new Edonkey();
                 }
             },
     ELF("Elf", "elf", "elf-32", "elf32") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) {
+                protected AbstractChecksum newChecksum(boolean alternate) {
                     return new Elf();
                 }
             },
     FCS16("FCS-16", "fcs16", "fcs-16", "crc16_x25", "crc-16_x-25") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) {
+                protected AbstractChecksum newChecksum(boolean alternate) {
                     return new FCS16();
                 }
             },
     GOST("GOST (R 34.11-94)", "gost") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) throws NoSuchAlgorithmException {
+                protected AbstractChecksum newChecksum(boolean alternate) throws NoSuchAlgorithmException {
                     return new MDbouncycastle("gost");
                 }
             },
@@ -148,19 +148,19 @@ public enum Algorithm {
     HAVAL_256_5("HAVAL 256 (5 rounds)", "haval_256_5"),
     MD2("MD2", "md2", "md2sum") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) throws NoSuchAlgorithmException {
+                protected AbstractChecksum newChecksum(boolean alternate) throws NoSuchAlgorithmException {
                     if (alternate) {
                         return new MDbouncycastle("md2");
                     }
-                    return super.getChecksumInstance(alternate);
+                    return super.newChecksum(alternate);
                 }
             },
     MD4("MD4", "md4", "md4sum"),
     MD5("MD5", "md5", "md5sum") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) throws NoSuchAlgorithmException {
+                protected AbstractChecksum newChecksum(boolean alternate) throws NoSuchAlgorithmException {
                     if (alternate) {
-                        return super.getChecksumInstance(alternate);
+                        return super.newChecksum(alternate);
                     }
                     return new MD(this.getCanonicalName());
 
@@ -168,21 +168,21 @@ public enum Algorithm {
             },
     RHF32("Rabin Hash 32", "rhf32") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) throws NoSuchAlgorithmException {
+                protected AbstractChecksum newChecksum(boolean alternate) throws NoSuchAlgorithmException {
                     return new MD("rhf32", new PJLProvider());
                 }
             },
     RHF64("Rabin Hash 64", "rhf64") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) throws NoSuchAlgorithmException {
+                protected AbstractChecksum newChecksum(boolean alternate) throws NoSuchAlgorithmException {
                     return new MD("rhf64", new PJLProvider());
                 }
             },
     RIPEMD128("RIPEMD-128", RIPEMD128_HASH, "ripemd-128", "ripe-md128", "rmd-128", "rmd128") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) throws NoSuchAlgorithmException {
+                protected AbstractChecksum newChecksum(boolean alternate) throws NoSuchAlgorithmException {
                     if (alternate) {
-                        return super.getChecksumInstance(alternate);
+                        return super.newChecksum(alternate);
                     }
                     // tested BouncyCastle's implementation was faster.
                     return new MDbouncycastle(RIPEMD128_HASH);
@@ -192,22 +192,22 @@ public enum Algorithm {
     RIPEMD160("RIPEMD-160", "ripemd160", "ripemd-160", "ripe-md160", "rmd-160", "rmd160"),
     RIPEMD256("RIPEMD-256", "ripemd256", "ripemd-256", "ripe-md256", "rmd-256", "rmd256") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) throws NoSuchAlgorithmException {
+                protected AbstractChecksum newChecksum(boolean alternate) throws NoSuchAlgorithmException {
                     return new MDbouncycastle(this.getCanonicalName());
                 }
             },
     RIPEMD320("RIPEMD-320", "ripemd320", "ripemd-320", "ripe-md320", "rmd-320", "rmd320") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) throws NoSuchAlgorithmException {
+                protected AbstractChecksum newChecksum(boolean alternate) throws NoSuchAlgorithmException {
                     return new MDbouncycastle(this.getCanonicalName());
                 }
             },
     SHA0("SHA-0", JacksumRegistry.SHA0_HASH, "sha0", "sha-0"),
     SHA1("SHA-1 (SHA-160)", JacksumRegistry.SHA1_HASH, "sha", "sha-1", "sha-160", "sha160") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) throws NoSuchAlgorithmException {
+                protected AbstractChecksum newChecksum(boolean alternate) throws NoSuchAlgorithmException {
                     if (alternate) {
-                        return super.getChecksumInstance(alternate);
+                        return super.newChecksum(alternate);
                     }
                     //return new MD("SHA-1");
                     return new MD(this.getCanonicalName());
@@ -216,128 +216,128 @@ public enum Algorithm {
             },
     SHA224("SHA-2 (SHA-224)", JacksumRegistry.SHA224_HASH, "sha224", "sha-224") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) throws NoSuchAlgorithmException {
+                protected AbstractChecksum newChecksum(boolean alternate) throws NoSuchAlgorithmException {
                     if (alternate) {
                         return new MDbouncycastle(this.getCanonicalName());
                     }
-                    return super.getChecksumInstance(alternate);
+                    return super.newChecksum(alternate);
 
                 }
             },
     SHA256("SHA-2 (SHA-256)", JacksumRegistry.SHA256_HASH, "sha256", "sha-256") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) throws NoSuchAlgorithmException {
+                protected AbstractChecksum newChecksum(boolean alternate) throws NoSuchAlgorithmException {
                     if (alternate) {
-                        return super.getChecksumInstance(alternate);
+                        return super.newChecksum(alternate);
                     }
                     return new MD(this.getCanonicalName());
                 }
             },
     SHA3_224("SHA3-224", "sha3-224") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) throws NoSuchAlgorithmException {
+                protected AbstractChecksum newChecksum(boolean alternate) throws NoSuchAlgorithmException {
                     return new MDbouncycastle(this.getCanonicalName());
                 }
             },
     SHA3_256("SHA3-256", "sha3-256") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) throws NoSuchAlgorithmException {
+                protected AbstractChecksum newChecksum(boolean alternate) throws NoSuchAlgorithmException {
                     return new MDbouncycastle(this.getCanonicalName());
                 }
             },
     SHA3_288("SHA3-288", "sha3-288") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) throws NoSuchAlgorithmException {
+                protected AbstractChecksum newChecksum(boolean alternate) throws NoSuchAlgorithmException {
                     return new MDbouncycastle(this.getCanonicalName());
                 }
             },
     SHA3_384("SHA3-384", "sha3-384") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) throws NoSuchAlgorithmException {
+                protected AbstractChecksum newChecksum(boolean alternate) throws NoSuchAlgorithmException {
                     return new MDbouncycastle(this.getCanonicalName());
                 }
             },
     SHA3_512("SHA3-512", "sha3-512") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) throws NoSuchAlgorithmException {
+                protected AbstractChecksum newChecksum(boolean alternate) throws NoSuchAlgorithmException {
                     return new MDbouncycastle(this.getCanonicalName());
                 }
             },
     SHA384("SHA-2 (SHA-384)", JacksumRegistry.SHA384_HASH, "sha384", "SHA-384") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) throws NoSuchAlgorithmException {
+                protected AbstractChecksum newChecksum(boolean alternate) throws NoSuchAlgorithmException {
                     if (alternate) {
-                        return super.getChecksumInstance(alternate);
+                        return super.newChecksum(alternate);
                     }
                     return new MD(this.getCanonicalName());
                 }
             },
     SHA512("SHA-2 (SHA-512)", JacksumRegistry.SHA512_HASH, "sha512", "SHA-512") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) throws NoSuchAlgorithmException {
+                protected AbstractChecksum newChecksum(boolean alternate) throws NoSuchAlgorithmException {
                     if (alternate) {
-                        return super.getChecksumInstance(alternate);
+                        return super.newChecksum(alternate);
                     }
                     return new MD(this.getCanonicalName());
                 }
             },
     SKEIN_1024("Skein-1024", "skein-1024") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) throws NoSuchAlgorithmException {
+                protected AbstractChecksum newChecksum(boolean alternate) throws NoSuchAlgorithmException {
                     return new MDbouncycastle(this.getCanonicalName());
                 }
             },
     SKEIN_256("Skein-256", "skein-256") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) throws NoSuchAlgorithmException {
+                protected AbstractChecksum newChecksum(boolean alternate) throws NoSuchAlgorithmException {
                     return new MDbouncycastle(this.getCanonicalName());
                 }
             },
     SKEIN_512("Skein-512", "skein-512") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) throws NoSuchAlgorithmException {
+                protected AbstractChecksum newChecksum(boolean alternate) throws NoSuchAlgorithmException {
                     return new MDbouncycastle(this.getCanonicalName());
                 }
             },
     SM3("SM3", "sm3", "alias") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) throws NoSuchAlgorithmException {
+                protected AbstractChecksum newChecksum(boolean alternate) throws NoSuchAlgorithmException {
                     return new MDbouncycastle(this.getCanonicalName());
                 }
             },
     SUM16("sum 16", "sum16", "sum-16") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) {
+                protected AbstractChecksum newChecksum(boolean alternate) {
                     return new Sum16();
                 }
             },
     SUM24("sum 24", "sum24", "sum-24") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) {
+                protected AbstractChecksum newChecksum(boolean alternate) {
                     return new Sum24();
                 }
             },
     SUM32("sum 32", "sum32", "sum-32") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) {
+                protected AbstractChecksum newChecksum(boolean alternate) {
                     return new Sum32();
                 }
             },
     SUM8("sum 8", "sum8", "sum-8") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) {
+                protected AbstractChecksum newChecksum(boolean alternate) {
                     return new Sum8();
                 }
             },
     SUMBSD("sum (BSD Unix)", "sumbsd", "bsdsum", "bsd") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) {
+                protected AbstractChecksum newChecksum(boolean alternate) {
                     return new SumBSD();
                 }
             },
     SUMSYSV("sum (System V Unix)", "sumsysv", "sysvsum", "sysv") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) {
+                protected AbstractChecksum newChecksum(boolean alternate) {
                     return new SumSysV();
                 }
             },
@@ -347,13 +347,13 @@ public enum Algorithm {
     TIGER2("Tiger2", "tiger2"),
     TREE_TIGER("Tiger Tree Hash", "tree:tiger") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) throws NoSuchAlgorithmException {
+                protected AbstractChecksum newChecksum(boolean alternate) throws NoSuchAlgorithmException {
                     return new MDTree("tiger");
                 }
             },
     TREE_TIGER2("Tiger2 Tree Hash", "tree:tiger2") {
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) throws NoSuchAlgorithmException {
+                protected AbstractChecksum newChecksum(boolean alternate) throws NoSuchAlgorithmException {
                     return new MDTree("tiger2");
                 }
             },
@@ -363,7 +363,7 @@ public enum Algorithm {
     XOR8("XOR 8", "xor8", "xor-8") {
 
                 @Override
-                public AbstractChecksum getChecksumInstance(boolean alternate) {
+                protected AbstractChecksum newChecksum(boolean alternate) {
                     return new Xor8();
                 }
             };
@@ -410,7 +410,28 @@ public enum Algorithm {
         return this.getChecksumInstance(alternate);
     }
 
-    public AbstractChecksum getChecksumInstance(boolean alternate) throws NoSuchAlgorithmException {
+    /**
+     * @param alternate true for the alternate implementation.
+     * @return an instance of this algorithm, from the provider found fastest
+     * on this JVM unless the alternate is asked for.
+     * @throws NoSuchAlgorithmException if it can't be instantiated.
+     */
+    public final AbstractChecksum getChecksumInstance(boolean alternate) throws NoSuchAlgorithmException {
+        if (!alternate) {
+            final DigestProvider provider = ProviderSelection.getSelected(this);
+            if (provider != null) {
+                return provider.newInstance(this.getCanonicalName());
+            }
+        }
+        return this.newChecksum(alternate);
+    }
+
+    /**
+     * @param alternate true for the alternate implementation.
+     * @return an instance of the implementation wired to this algorithm.
+     * @throws NoSuchAlgorithmException if it can't be instantiated.
+     */
+    protected AbstractChecksum newChecksum(boolean alternate) throws NoSuchAlgorithmException {
         return new MDgnu(this.getCanonicalName());
     }
     
@@ -23,6 +23,9 @@
  *****************************************************************************/
 
 package jonelo.jacksum.algorithm;
+
+import java.nio.ByteBuffer;
+
 /**
  * A class that can be used to compute the Cksum of a data stream.
  * This is a 100% Java implementation.
@@ -30,7 +33,7 @@ package jonelo.jacksum.algorithm;
 
 // implemented in Java from original GNU C source
 // it computes a POSIX 1003.2 checksum.
-public class Cksum extends AbstractChecksum {
+public class Cksum extends AbstractChecksum implements Combinable {
    // protected int value;
 
     protected final int crctab[] = {
@@ -88,6 +91,8 @@ public class Cksum extends AbstractChecksum {
         0xA2F33668, 0xBCB4666D, 0xB8757BDA, 0xB5365D03, 0xB1F740B4
     };
 
+    private static final long[] ZERO_BYTE = CrcCombiner.normal(32, 0x04C11DB7L);
+
     public Cksum() {
         value = 0;
         length = 0;
@@ -115,6 +120,32 @@ public class Cksum extends AbstractChecksum {
         length +=l;
     }
 
+    @Override
+    public final void update(ByteBuffer buffer) {
+        final int l = buffer.remaining();
+        final int limit = buffer.limit();
+        for (int i = buffer.position(); i < limit; i++) {
+            value = (value << 8) ^ crctab[ (((int)value >> 24) ^ buffer.get(i))  & 0xFF];
+        }
+        buffer.position(limit);
+        this.length += l;
+    }
+
+    /**
+     * @return the register before any input.
+     */
+    protected long initialRegister() {
+        return 0;
+    }
+
+    @Override
+    public void combine(AbstractChecksum next) {
+        checkCombinable(next);
+        final Cksum other = (Cksum) next;
+        value = CrcCombiner.combine(value & 0xFFFFFFFFL, initialRegister(), other.value & 0xFFFFFFFFL, other.length, ZERO_BYTE);
+        length += other.length;
+    }
+
     // a 2.5 GB file (length=2684354560), filled with random
     // bytes (Java seed=0), returns a cksum value of 128656372
     @Override
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2015 Federico Tello Gentile <federicotg@gmail.com>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package jonelo.jacksum.algorithm;
+
+/**
+ * A checksum that can be computed on independent ranges of the input and
+ * put together afterwards, so a single file can be hashed by several threads.
+ *
+ * @author Federico Tello Gentile <federicotg@gmail.com>
+ */
+public interface Combinable {
+
+    /**
+     * Leaves this checksum as if it had also been updated with everything the
+     * other one was updated with, right after its own input.
+     *
+     * @param next a checksum of the same algorithm and parameters, updated
+     * with the input that follows this one's.
+     * @throws IllegalArgumentException if next is a different algorithm.
+     */
+    void combine(AbstractChecksum next);
+}
@@ -27,6 +27,7 @@ package jonelo.jacksum.algorithm;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
@@ -107,6 +108,16 @@ public final class CombinedChecksum extends AbstractChecksum {
         this.length += length;
     }
 
+    @Override
+    public void update(ByteBuffer buffer) {
+        // every algorithm reads the same bytes through its own view.
+        for (AbstractChecksum algorithm : algorithms) {
+            algorithm.update(buffer.duplicate());
+        }
+        this.length += buffer.remaining();
+        buffer.position(buffer.limit());
+    }
+
     /**
      * Returns the result of the computation as byte array.
      */
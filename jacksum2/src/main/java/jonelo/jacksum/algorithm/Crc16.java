@@ -25,12 +25,14 @@
  */
 package jonelo.jacksum.algorithm;
 
+import java.nio.ByteBuffer;
+
 /**
  * A class that can be used to compute the CRC-16 of a data stream. This is a
  * 100% Java implementation.
  */
 
-public class Crc16 extends AbstractChecksum {
+public class Crc16 extends AbstractChecksum implements Combinable {
 
     private int val;
 
@@ -70,6 +72,8 @@ public class Crc16 extends AbstractChecksum {
         0x8201, 0x42C0, 0x4380, 0x8341, 0x4100, 0x81C1, 0x8081, 0x4040
     };
 
+    private static final long[] ZERO_BYTE = CrcCombiner.reflected(16, 0xA001);
+
     public Crc16() {
         val = 0;
         this.setName("crc16");
@@ -95,6 +99,25 @@ public class Crc16 extends AbstractChecksum {
         this.length += l;
     }
 
+    @Override
+    public void update(ByteBuffer buffer) {
+        final int l = buffer.remaining();
+        final int limit = buffer.limit();
+        for (int i = buffer.position(); i < limit; i++) {
+            val = (val >>> 8) ^ crc16tab[(val ^ buffer.get(i)) & 0xff];
+        }
+        buffer.position(limit);
+        this.length += l;
+    }
+
+    @Override
+    public void combine(AbstractChecksum next) {
+        checkCombinable(next);
+        final Crc16 other = (Crc16) next;
+        val = (int) CrcCombiner.combine(val, 0, other.val, other.length, ZERO_BYTE);
+        length += other.length;
+    }
+
     @Override
     public long getValue() {
         return (((long) val) & 0xffffL);
@@ -30,12 +30,20 @@ package jonelo.jacksum.algorithm;
  * implementation uses the class java.util.zip.CRC32 from the Java Standard API.
  */
 
+import java.nio.ByteBuffer;
 import java.util.zip.CRC32;
 
-public class Crc32 extends AbstractChecksum {
+public class Crc32 extends AbstractChecksum implements Combinable {
+
+    private static final long[] ZERO_BYTE = CrcCombiner.reflected(32, 0xEDB88320L);
 
     private CRC32 crc32 = null;
 
+    // CRC32 can't be set to a combined value, so it is kept here and crc32
+    // only has what came after it.
+    private long prefix = 0;
+    private long prefixLength = 0;
+
     public Crc32() {
         super();
         crc32 = new CRC32();
@@ -46,6 +54,8 @@ public class Crc32 extends AbstractChecksum {
     public void reset() {
         crc32.reset();
         length = 0;
+        prefix = 0;
+        prefixLength = 0;
     }
 
     @Override
@@ -54,19 +64,41 @@ public class Crc32 extends AbstractChecksum {
         length += len;
     }
 
+    @Override
+    public void update(ByteBuffer buffer) {
+        length += buffer.remaining();
+        crc32.update(buffer);
+    }
+
     @Override
     public void update(byte b) {
         update((int) (b & 0xFF));
     }
 
+    @Override
+    public void combine(AbstractChecksum next) {
+        checkCombinable(next);
+        prefix = append(getValue(), next.getValue(), next.length);
+        length += next.length;
+        prefixLength = length;
+        crc32.reset();
+    }
+
+    private static long append(long first, long second, long secondLength) {
+        return CrcCombiner.combine(first ^ 0xFFFFFFFFL, 0xFFFFFFFFL, second ^ 0xFFFFFFFFL, secondLength, ZERO_BYTE) ^ 0xFFFFFFFFL;
+    }
+
     @Override
     public long getValue() {
-        return crc32.getValue();
+        if (prefixLength == 0) {
+            return crc32.getValue();
+        }
+        return append(prefix, crc32.getValue(), length - prefixLength);
     }
 
     @Override
     public byte[] getByteArray() {
-        long val = crc32.getValue();
+        long val = getValue();
         return new byte[]{(byte) ((val >> 24) & 0xff),
             (byte) ((val >> 16) & 0xff),
             (byte) ((val >> 8) & 0xff),
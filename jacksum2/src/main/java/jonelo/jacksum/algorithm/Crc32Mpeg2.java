@@ -38,6 +38,11 @@ public class Crc32Mpeg2 extends Cksum {
         length = 0;
     }
 
+    @Override
+    protected long initialRegister() {
+        return 0xFFFFFFFFL;
+    }
+
     // this method is provided in the superclass, but 'value' is overriden
     // the MPEG2 CRC is just the raw value as below
     @Override
@@ -25,7 +25,10 @@
  */
 package jonelo.jacksum.algorithm;
 
-public class Crc64 extends AbstractChecksum {
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class Crc64 extends AbstractChecksum implements Combinable {
 
     // CRC-64 look-up table
     private static final long[] crc64tab = new long[]{
@@ -117,6 +120,36 @@ public class Crc64 extends AbstractChecksum {
         0x9090000000000000L
     };
 
+    private static final long[] ZERO_BYTE = CrcCombiner.reflected(64, 0xD800000000000000L);
+
+    // slicing by 8, table k feeds a byte followed by k zero bytes, at k * 256.
+    private static final long[] SLICES = slices();
+
+    private static long[] slices() {
+        final long[] answer = new long[8 * 256];
+        System.arraycopy(crc64tab, 0, answer, 0, 256);
+        for (int k = 1; k < 8; k++) {
+            for (int i = 0; i < 256; i++) {
+                final long previous = answer[((k - 1) << 8) | i];
+                answer[(k << 8) | i] = (previous >>> 8) ^ crc64tab[(int) previous & 0xff];
+            }
+        }
+        return answer;
+    }
+
+    // the register after feeding 8 bytes, given the register xored with them
+    // as a little endian word.
+    private static long slice(long x) {
+        return SLICES[0x700 | ((int) x & 0xff)]
+                ^ SLICES[0x600 | ((int) (x >>> 8) & 0xff)]
+                ^ SLICES[0x500 | ((int) (x >>> 16) & 0xff)]
+                ^ SLICES[0x400 | ((int) (x >>> 24) & 0xff)]
+                ^ SLICES[0x300 | ((int) (x >>> 32) & 0xff)]
+                ^ SLICES[0x200 | ((int) (x >>> 40) & 0xff)]
+                ^ SLICES[0x100 | ((int) (x >>> 48) & 0xff)]
+                ^ SLICES[(int) (x >>> 56)];
+    }
+
     public Crc64() {
         super();
         value = 0;
@@ -136,15 +169,66 @@ public class Crc64 extends AbstractChecksum {
         length++;
     }
 
+    /**
+     * Eight bytes at a time through the slicing tables, the rest like
+     * update(byte).
+     */
     @Override
     public void update(byte[] bytes, int offset, int l) {
+        final int end = l + offset;
+        long crc = value;
+        int i = offset;
+        for (; i + 8 <= end; i += 8) {
+            crc = SLICES[0x700 | (((int) crc ^ bytes[i]) & 0xff)]
+                    ^ SLICES[0x600 | (((int) (crc >>> 8) ^ bytes[i + 1]) & 0xff)]
+                    ^ SLICES[0x500 | (((int) (crc >>> 16) ^ bytes[i + 2]) & 0xff)]
+                    ^ SLICES[0x400 | (((int) (crc >>> 24) ^ bytes[i + 3]) & 0xff)]
+                    ^ SLICES[0x300 | (((int) (crc >>> 32) ^ bytes[i + 4]) & 0xff)]
+                    ^ SLICES[0x200 | (((int) (crc >>> 40) ^ bytes[i + 5]) & 0xff)]
+                    ^ SLICES[0x100 | (((int) (crc >>> 48) ^ bytes[i + 6]) & 0xff)]
+                    ^ SLICES[((int) (crc >>> 56) ^ bytes[i + 7]) & 0xff];
+        }
+        for (; i < end; i++) {
+            crc = (crc >>> 8) ^ crc64tab[(int) ((crc ^ bytes[i]) & 0xff)];
+        }
+        value = crc;
+        this.length += l;
+    }
 
-        for (int i = offset; i < l + offset; i++) {
-            value = (value >>> 8) ^ crc64tab[(int) ((value ^ bytes[i]) & 0xff)];
+    /**
+     * Reads eight bytes at a time as a little endian long, a single load on
+     * direct and mapped buffers.
+     */
+    @Override
+    public void update(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            super.update(buffer);
+            return;
         }
+        final int l = buffer.remaining();
+        final int limit = buffer.limit();
+        final ByteBuffer words = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        long crc = value;
+        int i = buffer.position();
+        for (; i + 8 <= limit; i += 8) {
+            crc = slice(crc ^ words.getLong(i));
+        }
+        for (; i < limit; i++) {
+            crc = (crc >>> 8) ^ crc64tab[(int) ((crc ^ buffer.get(i)) & 0xff)];
+        }
+        value = crc;
+        buffer.position(limit);
         this.length += l;
     }
 
+    @Override
+    public void combine(AbstractChecksum next) {
+        checkCombinable(next);
+        final Crc64 other = (Crc64) next;
+        value = CrcCombiner.combine(value, 0, other.value, other.length, ZERO_BYTE);
+        length += other.length;
+    }
+
     @Override
     public byte[] getByteArray() {
         long val = getValue();
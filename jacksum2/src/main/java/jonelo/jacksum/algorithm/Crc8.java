@@ -51,10 +51,12 @@
  */
 package jonelo.jacksum.algorithm;
 
+import java.nio.ByteBuffer;
+
 /**
  * A class that can be used to compute the Crc8 of a data stream.
  */
-public class Crc8 extends AbstractChecksum {
+public class Crc8 extends AbstractChecksum implements Combinable {
 
     private byte val;
     // CRC-8, poly = x^8 + x^2 + x^1 + 1, init = 0
@@ -320,6 +322,8 @@ public class Crc8 extends AbstractChecksum {
                 (byte) 0xF4,
                 (byte) 0xF3};
 
+    private static final long[] ZERO_BYTE = CrcCombiner.normal(8, 0x07);
+
     public Crc8() {
         val = 0;
         length = 0;
@@ -352,6 +356,25 @@ public class Crc8 extends AbstractChecksum {
         this.length += l;
     }
 
+    @Override
+    public void update(ByteBuffer buffer) {
+        final int l = buffer.remaining();
+        final int limit = buffer.limit();
+        for (int i = buffer.position(); i < limit; i++) {
+            val = CRC8_TABLE[(val ^ buffer.get(i)) & 0xFF];
+        }
+        buffer.position(limit);
+        this.length += l;
+    }
+
+    @Override
+    public void combine(AbstractChecksum next) {
+        checkCombinable(next);
+        final Crc8 other = (Crc8) next;
+        val = (byte) CrcCombiner.combine(val & 0xFF, 0, other.val & 0xFF, other.length, ZERO_BYTE);
+        length += other.length;
+    }
+
     @Override
     public long getValue() {
         return ((long) val) & 0xFFL;
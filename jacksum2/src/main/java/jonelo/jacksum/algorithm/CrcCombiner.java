@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2015 Federico Tello Gentile <federicotg@gmail.com>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package jonelo.jacksum.algorithm;
+
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Combines CRC registers the way zlib's crc32_combine does. Feeding a zero
+ * byte to a CRC register is linear over GF(2), so it is a matrix. Appending n
+ * bytes to a register that already holds the CRC of the first part is that
+ * matrix to the n-th power, applied with O(log n) squarings.
+ *
+ * Matrices are kept as columns, the i-th long is the image of bit i.
+ *
+ * @author Federico Tello Gentile <federicotg@gmail.com>
+ */
+final class CrcCombiner {
+
+    private CrcCombiner() {
+    }
+
+    /**
+     * @param width register width in bits.
+     * @param zeroByte feeds one zero byte to a register.
+     * @return the matrix of feeding one zero byte.
+     */
+    static long[] operator(int width, LongUnaryOperator zeroByte) {
+        final long[] answer = new long[width];
+        for (int i = 0; i < width; i++) {
+            answer[i] = zeroByte.applyAsLong(1L << i);
+        }
+        return answer;
+    }
+
+    /**
+     * @param width register width in bits.
+     * @param poly the reflected polynomial, as used by a right shifting
+     * register.
+     * @return the matrix of feeding one zero byte.
+     */
+    static long[] reflected(int width, long poly) {
+        return operator(width, register -> {
+            for (int bit = 0; bit < 8; bit++) {
+                register = (register & 1L) != 0 ? (register >>> 1) ^ poly : register >>> 1;
+            }
+            return register;
+        });
+    }
+
+    /**
+     * @param width register width in bits.
+     * @param poly the polynomial without its top bit, as used by a left
+     * shifting register.
+     * @return the matrix of feeding one zero byte.
+     */
+    static long[] normal(int width, long poly) {
+        final long topBit = 1L << (width - 1);
+        final long mask = ~0L >>> (64 - width);
+        return operator(width, register -> {
+            for (int bit = 0; bit < 8; bit++) {
+                register = (register & topBit) != 0 ? ((register << 1) ^ poly) & mask : (register << 1) & mask;
+            }
+            return register;
+        });
+    }
+
+    private static long times(long[] matrix, long vector) {
+        long answer = 0;
+        for (int i = 0; vector != 0; i++, vector >>>= 1) {
+            if ((vector & 1L) != 0) {
+                answer ^= matrix[i];
+            }
+        }
+        return answer;
+    }
+
+    private static long[] square(long[] matrix) {
+        final long[] answer = new long[matrix.length];
+        for (int i = 0; i < matrix.length; i++) {
+            answer[i] = times(matrix, matrix[i]);
+        }
+        return answer;
+    }
+
+    /**
+     * The register of the whole input from the registers of its two parts.
+     * Both parts start from the initial register, and neither has had its
+     * final reflection or xor applied.
+     *
+     * @param first register after the first part.
+     * @param initial register before any input.
+     * @param second register after the second part.
+     * @param secondLength bytes in the second part.
+     * @param zeroByte the matrix of feeding one zero byte.
+     * @return the register after both parts.
+     */
+    static long combine(long first, long initial, long second, long secondLength, long[] zeroByte) {
+        // the second part started from the initial register instead of the
+        // first one, and the difference goes through secondLength zero bytes.
+        long register = first ^ initial;
+        long[] power = zeroByte;
+        for (long n = secondLength; n != 0 && register != 0; n >>>= 1) {
+            if ((n & 1L) != 0) {
+                register = times(power, register);
+            }
+            if (n > 1) {
+                power = square(power);
+            }
+        }
+        return register ^ second;
+    }
+}
@@ -40,7 +40,7 @@ import java.security.NoSuchAlgorithmException;
 import jonelo.sugar.util.GeneralString;
 import jonelo.jacksum.util.Service;
 
-public class CrcGeneric extends AbstractChecksum {
+public class CrcGeneric extends AbstractChecksum implements Combinable {
 
     private int width;         // Width in bits [8..64], width is one bit less than the raw poly width
     private long poly;         // The algorithm's polynomial which is specified without its top bit
@@ -52,6 +52,9 @@ public class CrcGeneric extends AbstractChecksum {
     private long topBit;       // Stores the value (2 ^ width)
     private long maskAllBits;  // Stores the value (2 ^ width) - 1
     private long maskHelp;     // Stores the value (2 ^ (width-8)) -1
+    private long[] zeroByte;   // Feeding a zero byte as a matrix, only built to combine
+    private long[] slices;     // Slicing by 8 tables for widths over 32, table k at k * 256
+    private int[] slices32;    // Slicing by 16 tables for widths up to 32, table k at k * 256
 
     /**
      * Constructor with all parameters as defined in the Rocksoft^tm Model CRC
@@ -385,10 +388,152 @@ public class CrcGeneric extends AbstractChecksum {
         length++;
     }
 
+    /**
+     * Builds the slicing tables from the byte table. Table k feeds a byte
+     * followed by k zero bytes, so several bytes can be looked up at once and
+     * xored together. Without reflection the values are kept aligned to the
+     * top of the word, so any width slides the same way.
+     */
+    private void fillSlices() {
+        if (width <= 32) {
+            final int[] answer = new int[16 * 256];
+            for (int i = 0; i < 256; i++) {
+                answer[i] = refIn ? (int) table[i] : (int) (table[i] << (32 - width));
+            }
+            for (int k = 1; k < 16; k++) {
+                for (int i = 0; i < 256; i++) {
+                    final int previous = answer[((k - 1) << 8) | i];
+                    answer[(k << 8) | i] = refIn
+                            ? (previous >>> 8) ^ answer[previous & 0xff]
+                            : (previous << 8) ^ answer[previous >>> 24];
+                }
+            }
+            slices32 = answer;
+        } else {
+            final long[] answer = new long[8 * 256];
+            for (int i = 0; i < 256; i++) {
+                answer[i] = refIn ? table[i] : table[i] << (64 - width);
+            }
+            for (int k = 1; k < 8; k++) {
+                for (int i = 0; i < 256; i++) {
+                    final long previous = answer[((k - 1) << 8) | i];
+                    answer[(k << 8) | i] = refIn
+                            ? (previous >>> 8) ^ answer[(int) previous & 0xff]
+                            : (previous << 8) ^ answer[(int) (previous >>> 56)];
+                }
+            }
+            slices = answer;
+        }
+    }
+
+    /**
+     * Feeds 16 bytes at a time while there are so many left, widths up to 32.
+     *
+     * @return the index of the first byte not fed.
+     */
+    private int sliceBy16(byte[] bytes, int offset, int end) {
+        final int[] t = slices32;
+        int i = offset;
+        if (refIn) {
+            int crc = (int) value;
+            for (; i + 16 <= end; i += 16) {
+                crc = t[0xf00 | ((crc ^ bytes[i]) & 0xff)]
+                        ^ t[0xe00 | ((crc >>> 8 ^ bytes[i + 1]) & 0xff)]
+                        ^ t[0xd00 | ((crc >>> 16 ^ bytes[i + 2]) & 0xff)]
+                        ^ t[0xc00 | ((crc >>> 24 ^ bytes[i + 3]) & 0xff)]
+                        ^ t[0xb00 | (bytes[i + 4] & 0xff)]
+                        ^ t[0xa00 | (bytes[i + 5] & 0xff)]
+                        ^ t[0x900 | (bytes[i + 6] & 0xff)]
+                        ^ t[0x800 | (bytes[i + 7] & 0xff)]
+                        ^ t[0x700 | (bytes[i + 8] & 0xff)]
+                        ^ t[0x600 | (bytes[i + 9] & 0xff)]
+                        ^ t[0x500 | (bytes[i + 10] & 0xff)]
+                        ^ t[0x400 | (bytes[i + 11] & 0xff)]
+                        ^ t[0x300 | (bytes[i + 12] & 0xff)]
+                        ^ t[0x200 | (bytes[i + 13] & 0xff)]
+                        ^ t[0x100 | (bytes[i + 14] & 0xff)]
+                        ^ t[bytes[i + 15] & 0xff];
+            }
+            value = crc & 0xffffffffL;
+        } else {
+            int crc = (int) (value << (32 - width));
+            for (; i + 16 <= end; i += 16) {
+                crc = t[0xf00 | ((crc >>> 24 ^ bytes[i]) & 0xff)]
+                        ^ t[0xe00 | ((crc >>> 16 ^ bytes[i + 1]) & 0xff)]
+                        ^ t[0xd00 | ((crc >>> 8 ^ bytes[i + 2]) & 0xff)]
+                        ^ t[0xc00 | ((crc ^ bytes[i + 3]) & 0xff)]
+                        ^ t[0xb00 | (bytes[i + 4] & 0xff)]
+                        ^ t[0xa00 | (bytes[i + 5] & 0xff)]
+                        ^ t[0x900 | (bytes[i + 6] & 0xff)]
+                        ^ t[0x800 | (bytes[i + 7] & 0xff)]
+                        ^ t[0x700 | (bytes[i + 8] & 0xff)]
+                        ^ t[0x600 | (bytes[i + 9] & 0xff)]
+                        ^ t[0x500 | (bytes[i + 10] & 0xff)]
+                        ^ t[0x400 | (bytes[i + 11] & 0xff)]
+                        ^ t[0x300 | (bytes[i + 12] & 0xff)]
+                        ^ t[0x200 | (bytes[i + 13] & 0xff)]
+                        ^ t[0x100 | (bytes[i + 14] & 0xff)]
+                        ^ t[bytes[i + 15] & 0xff];
+            }
+            value = (crc & 0xffffffffL) >>> (32 - width);
+        }
+        return i;
+    }
+
+    /**
+     * Feeds 8 bytes at a time while there are so many left, widths over 32.
+     *
+     * @return the index of the first byte not fed.
+     */
+    private int sliceBy8(byte[] bytes, int offset, int end) {
+        final long[] t = slices;
+        int i = offset;
+        if (refIn) {
+            long crc = value;
+            for (; i + 8 <= end; i += 8) {
+                crc = t[0x700 | (((int) crc ^ bytes[i]) & 0xff)]
+                        ^ t[0x600 | (((int) (crc >>> 8) ^ bytes[i + 1]) & 0xff)]
+                        ^ t[0x500 | (((int) (crc >>> 16) ^ bytes[i + 2]) & 0xff)]
+                        ^ t[0x400 | (((int) (crc >>> 24) ^ bytes[i + 3]) & 0xff)]
+                        ^ t[0x300 | (((int) (crc >>> 32) ^ bytes[i + 4]) & 0xff)]
+                        ^ t[0x200 | (((int) (crc >>> 40) ^ bytes[i + 5]) & 0xff)]
+                        ^ t[0x100 | (((int) (crc >>> 48) ^ bytes[i + 6]) & 0xff)]
+                        ^ t[((int) (crc >>> 56) ^ bytes[i + 7]) & 0xff];
+            }
+            value = crc;
+        } else {
+            long crc = value << (64 - width);
+            for (; i + 8 <= end; i += 8) {
+                crc = t[0x700 | (((int) (crc >>> 56) ^ bytes[i]) & 0xff)]
+                        ^ t[0x600 | (((int) (crc >>> 48) ^ bytes[i + 1]) & 0xff)]
+                        ^ t[0x500 | (((int) (crc >>> 40) ^ bytes[i + 2]) & 0xff)]
+                        ^ t[0x400 | (((int) (crc >>> 32) ^ bytes[i + 3]) & 0xff)]
+                        ^ t[0x300 | (((int) (crc >>> 24) ^ bytes[i + 4]) & 0xff)]
+                        ^ t[0x200 | (((int) (crc >>> 16) ^ bytes[i + 5]) & 0xff)]
+                        ^ t[0x100 | (((int) (crc >>> 8) ^ bytes[i + 6]) & 0xff)]
+                        ^ t[((int) crc ^ bytes[i + 7]) & 0xff];
+            }
+            value = crc >>> (64 - width);
+        }
+        return i;
+    }
+
+    /**
+     * Feeds the bytes through the slicing tables and the rest one at a time
+     * like update(byte), which is kept as the reference.
+     */
     @Override
     public void update(byte[] bytes, int offset, int l) {
+        final int end = offset + l;
+        int i = offset;
+        if (l >= 16) {
+            if (slices == null && slices32 == null) {
+                fillSlices();
+            }
+            i = width <= 32 ? sliceBy16(bytes, i, end) : sliceBy8(bytes, i, end);
+        }
 
-        for (int i = offset; i < l + offset; i++) {
+        for (; i < end; i++) {
             byte b = bytes[i];
             // divide the byte by the polynomial
             int index;
@@ -417,6 +562,31 @@ public class CrcGeneric extends AbstractChecksum {
         this.length += l;
     }
 
+    /**
+     * Combines with a CRC of the same parameters. The registers are combined
+     * as they are, before any output reflection or xor.
+     *
+     * @param next a CRC of the input that follows this one's.
+     */
+    @Override
+    public void combine(AbstractChecksum next) {
+        checkCombinable(next);
+        final CrcGeneric other = (CrcGeneric) next;
+        if (!getString().equals(other.getString())) {
+            throw new IllegalArgumentException("Can't combine " + getString() + " with " + other.getString());
+        }
+        if (zeroByte == null) {
+            // the table feeds a byte to the register, so it knows the matrix.
+            zeroByte = CrcCombiner.operator(width, refIn
+                    ? register -> ((register >>> 8) & maskHelp) ^ table[(int) register & 0xff]
+                    : register -> ((register << 8) ^ table[(int) (register >>> (width - 8)) & 0xff]) & maskAllBits);
+        }
+        final long initial = refIn ? reflect(initialValue, width) : initialValue;
+        // without reflection the register keeps shifted out bits above width.
+        value = CrcCombiner.combine(value & maskAllBits, initial, other.value & maskAllBits, other.length, zeroByte);
+        length += other.length;
+    }
+
     /**
      * Returns the value of the checksum
      *
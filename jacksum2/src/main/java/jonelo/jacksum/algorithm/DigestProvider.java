@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2015 Federico Tello Gentile <federicotg@gmail.com>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package jonelo.jacksum.algorithm;
+
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * The libraries that implement message digests. Many algorithms are in more
+ * than one of them and which is fastest depends on the JVM and the CPU.
+ *
+ * @author Federico Tello Gentile <federicotg@gmail.com>
+ */
+public enum DigestProvider {
+
+    /**
+     * The JVM's own, where HotSpot can use the CPU's SHA instructions.
+     */
+    JDK {
+                @Override
+                public AbstractChecksum newInstance(String name) throws NoSuchAlgorithmException {
+                    return new MD(name);
+                }
+            },
+    /**
+     * GNU Crypto and jonelo's additions to it.
+     */
+    GNU_CRYPTO {
+                @Override
+                public AbstractChecksum newInstance(String name) throws NoSuchAlgorithmException {
+                    return new MDgnu(name);
+                }
+            },
+    /**
+     * The Bouncy Castle lightweight API.
+     */
+    BOUNCY_CASTLE {
+                @Override
+                public AbstractChecksum newInstance(String name) throws NoSuchAlgorithmException {
+                    return new MDbouncycastle(name);
+                }
+            };
+
+    /**
+     * @param name the canonical name of an algorithm.
+     * @return this provider's implementation of it.
+     * @throws NoSuchAlgorithmException if this provider does not have it.
+     */
+    public abstract AbstractChecksum newInstance(String name) throws NoSuchAlgorithmException;
+}
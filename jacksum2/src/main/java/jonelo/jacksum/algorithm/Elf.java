@@ -25,8 +25,12 @@
  */
 package jonelo.jacksum.algorithm;
 
+import java.nio.ByteBuffer;
+
 public class Elf extends AbstractChecksum {
 
+    // callers keep passing the same array, so its view is kept too.
+    private ByteBuffer words;
 
     public Elf() {
         value = 0;
@@ -51,19 +55,50 @@ public class Elf extends AbstractChecksum {
         length++;
     }
 
-    @Override
-    public void update(byte[] bytes, int offset, int l) {
+    // like update(byte) without the branch, xoring zero changes nothing.
+    private static long step(long hash, int b) {
+        final long shifted = (hash << 4) + (b & 0xFF);
+        final long ghash = shifted & 0xF0000000L;
+        return (shifted ^ (ghash >>> 24)) & ~ghash;
+    }
 
-        for (int i = offset; i < l + offset; i++) {
+    /**
+     * Every byte depends on the hash so far, so a word is read at once and the
+     * steps are unrolled.
+     */
+    private void update(ByteBuffer words, int from, int to) {
+        long hash = value;
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            final long word = words.getLong(i);
+            hash = step(hash, (int) word);
+            hash = step(hash, (int) (word >>> 8));
+            hash = step(hash, (int) (word >>> 16));
+            hash = step(hash, (int) (word >>> 24));
+            hash = step(hash, (int) (word >>> 32));
+            hash = step(hash, (int) (word >>> 40));
+            hash = step(hash, (int) (word >>> 48));
+            hash = step(hash, (int) (word >>> 56));
+        }
+        for (; i < to; i++) {
+            hash = step(hash, words.get(i));
+        }
+        value = hash;
+    }
 
-            value = (value << 4) + (bytes[i] & 0xFF);
-            long ghash = value & 0xF0000000L;
-            if (ghash != 0) {
-                value ^= (ghash >>> 24);
-            }
-            value &= ~ghash;
+    @Override
+    public void update(byte[] bytes, int offset, int l) {
+        this.words = Words.view(this.words, bytes);
+        this.update(this.words, offset, offset + l);
+        this.length += l;
+    }
 
-        }
+    @Override
+    public void update(ByteBuffer buffer) {
+        final int l = buffer.remaining();
+        final int limit = buffer.limit();
+        this.update(Words.view(buffer), buffer.position(), limit);
+        buffer.position(limit);
         this.length += l;
     }
 
@@ -25,8 +25,10 @@
  */
 package jonelo.jacksum.algorithm;
 
+import java.nio.ByteBuffer;
+
 // ftp://ftp.rfc-editor.org/in-notes/rfc1331.txt
-public class FCS16 extends AbstractChecksum {
+public class FCS16 extends AbstractChecksum implements Combinable {
 
    // protected int value;
 
@@ -66,6 +68,8 @@ public class FCS16 extends AbstractChecksum {
 
     };
 
+    private static final long[] ZERO_BYTE = CrcCombiner.reflected(16, 0x8408);
+
     public FCS16() {
         value = 0xFFFF;
         length = 0;
@@ -93,6 +97,25 @@ public class FCS16 extends AbstractChecksum {
         this.length += l;
     }
 
+    @Override
+    public void update(ByteBuffer buffer) {
+        final int l = buffer.remaining();
+        final int limit = buffer.limit();
+        for (int i = buffer.position(); i < limit; i++) {
+            value = (int) (((value >> 8) ^ crctab[((int)value ^ (int) buffer.get(i)) & 0xFF]) & 0xFFFF);
+        }
+        buffer.position(limit);
+        this.length += l;
+    }
+
+    @Override
+    public void combine(AbstractChecksum next) {
+        checkCombinable(next);
+        final FCS16 other = (FCS16) next;
+        value = CrcCombiner.combine(value, 0xFFFF, other.value, other.length, ZERO_BYTE);
+        length += other.length;
+    }
+
     @Override
     public long getValue() {
         return (~value & 0xFFFF);
@@ -25,13 +25,15 @@
  */
 package jonelo.jacksum.algorithm;
 
+import java.nio.ByteBuffer;
+
 /**
  * A class that can be used to compute the CRC-32 (FCS-32) of a data stream
  * (alternate). This is a 100% Java implementation.
  */
 
 // ftp://ftp.rfc-editor.org/in-notes/rfc1331.txt
-public class FCS32 extends AbstractChecksum {
+public class FCS32 extends AbstractChecksum implements Combinable {
 
     protected final int crctab[] = {
         0x00000000, 0x77073096, 0xEE0E612C, 0x990951BA, 0x076DC419, 0x706AF48F, 0xE963A535, 0x9E6495A3,
@@ -69,6 +71,8 @@ public class FCS32 extends AbstractChecksum {
 
     };
 
+    private static final long[] ZERO_BYTE = CrcCombiner.reflected(32, 0xEDB88320L);
+
     public FCS32() {
         reset();
         this.setName("crc32");
@@ -95,6 +99,25 @@ public class FCS32 extends AbstractChecksum {
         this.length += l;
     }
 
+    @Override
+    public void update(ByteBuffer buffer) {
+        final int l = buffer.remaining();
+        final int limit = buffer.limit();
+        for (int i = buffer.position(); i < limit; i++) {
+            value = (((value >> 8) ^ crctab[(int) (value ^ (int) buffer.get(i)) & 0xFF]) & 0xFFFFFFFFL);
+        }
+        buffer.position(limit);
+        this.length += l;
+    }
+
+    @Override
+    public void combine(AbstractChecksum next) {
+        checkCombinable(next);
+        final FCS32 other = (FCS32) next;
+        value = CrcCombiner.combine(value, 0xFFFFFFFFL, other.value, other.length, ZERO_BYTE);
+        length += other.length;
+    }
+
     @Override
     public long getValue() {
         return (~value & 0xFFFFFFFFL);
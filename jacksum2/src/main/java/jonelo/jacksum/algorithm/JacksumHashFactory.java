@@ -85,7 +85,11 @@ public class JacksumHashFactory implements JacksumRegistry {
         name = name.trim();
         IMessageDigest result = HashFactory.getInstance(name);
         if (result == null) {
-            result = FACTORY_MAP.get(name.toLowerCase()).get();
+            final Supplier<IMessageDigest> supplier = FACTORY_MAP.get(name.toLowerCase());
+            if (supplier == null) {
+                return null;
+            }
+            result = supplier.get();
         }
         if (result != null && !result.selfTest()) {
             throw new InternalError(result.name());
@@ -25,6 +25,7 @@
  */
 package jonelo.jacksum.algorithm;
 
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.Provider;
@@ -71,6 +72,12 @@ public class MD extends AbstractChecksum {
         length += len;
     }
 
+    @Override
+    public void update(ByteBuffer buffer) {
+        length += buffer.remaining();
+        md.update(buffer);
+    }
+
     @Override
     public void update(byte b) {
         md.update(b);
@@ -25,6 +25,7 @@
  */
 package jonelo.jacksum.algorithm;
 
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import jonelo.jacksum.adapt.com.bitzi.util.TigerTree;
@@ -62,6 +63,12 @@ public class MDTree extends AbstractChecksum {
         length += len;
     }
 
+    @Override
+    public void update(ByteBuffer buffer) {
+        length += buffer.remaining();
+        md.update(buffer);
+    }
+
     @Override
     public void update(byte b) {
         md.update(b);
@@ -104,12 +104,12 @@ public class MDbouncycastle extends AbstractChecksum {
         encoding = HEX;
         virgin = true;
         this.setName(arg);
-        Digest answer = FACTORY_MAP.get(arg.toLowerCase()).get();
+        final Supplier<Digest> answer = FACTORY_MAP.get(arg.toLowerCase());
 
         if (answer == null) {
             throw new NoSuchAlgorithmException(arg + " is an unknown algorithm.");
         }
-        md = answer;
+        md = answer.get();
 
     }
 
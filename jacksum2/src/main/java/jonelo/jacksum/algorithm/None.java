@@ -26,6 +26,7 @@
 package jonelo.jacksum.algorithm;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 
 public class None extends AbstractChecksum {
 
@@ -56,6 +57,12 @@ public class None extends AbstractChecksum {
         this.length += l;
     }
 
+    @Override
+    public void update(ByteBuffer buffer) {
+        this.length += buffer.remaining();
+        buffer.position(buffer.limit());
+    }
+
     @Override
     public long readFile(String filename, boolean reset) throws IOException {
         this.filename = filename;
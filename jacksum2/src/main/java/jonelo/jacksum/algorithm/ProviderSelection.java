@@ -0,0 +1,321 @@
+/*
+ * Copyright (C) 2015 Federico Tello Gentile <federicotg@gmail.com>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package jonelo.jacksum.algorithm;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import jonelo.jacksum.util.Service;
+
+/**
+ * Picks the fastest provider of every message digest that more than one
+ * provider implements. The first time an algorithm is asked for, every
+ * provider that has it is checked against the implementation wired to the
+ * algorithm and against a known vector, then timed. The fastest one is used
+ * from then on by this JVM.
+ *
+ * Callers that are about to hash probe their algorithms first, so the timing
+ * does not compete with the hashing, and can keep the winners in a profile
+ * file. The winners in the file are only used by the same JVM version on the
+ * same kind of machine.
+ *
+ * Setting the jacksum2.providers system property to "fixed" keeps the wired
+ * implementations.
+ *
+ * @author Federico Tello Gentile <federicotg@gmail.com>
+ */
+public final class ProviderSelection {
+
+    /**
+     * System property, "fixed" turns the selection off.
+     */
+    public static final String PROPERTY = "jacksum2.providers";
+
+    /**
+     * System property with the path of the profile file.
+     */
+    public static final String FILE_PROPERTY = "jacksum2.providers.file";
+
+    /**
+     * How long each provider is timed, the same again is spent warming it up.
+     */
+    public static final long PROBE_MILLIS = 20;
+
+    // what a profile file says when the wired implementation was kept.
+    private static final String WIRED = "wired";
+
+    private static final byte[] ABC = "abc".getBytes(StandardCharsets.US_ASCII);
+
+    // the same bytes every time, in cache.
+    private static final byte[] SAMPLE = new byte[64 * 1024];
+
+    // digests of "abc" from RFC 1321 and FIPS 180.
+    private static final Map<Algorithm, String> KNOWN = new EnumMap<>(Algorithm.class);
+
+    // empty when the wired implementation is kept.
+    private static final Map<Algorithm, Optional<DigestProvider>> SELECTED = new ConcurrentHashMap<>();
+
+    static {
+        new Random(0).nextBytes(SAMPLE);
+        KNOWN.put(Algorithm.MD5, "900150983cd24fb0d6963f7d28e17f72");
+        KNOWN.put(Algorithm.SHA1, "a9993e364706816aba3e25717850c26c9cd0d89d");
+        KNOWN.put(Algorithm.SHA224, "23097d223405d8228642a477bda255b32aadbce4bda0b3f7e36c9da7");
+        KNOWN.put(Algorithm.SHA256, "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+        KNOWN.put(Algorithm.SHA384, "cb00753f45a35e8bb5a03d699ac65007272c32ab0eded1631a8b605a43ff5bed"
+                + "8086072ba1e7cc2358baeca134c825a7");
+        KNOWN.put(Algorithm.SHA512, "ddaf35a193617abacc417349ae20413112e6fa4e89a97ea20a9eeee64b55d39a"
+                + "2192992a274fc1a836ba3c23a3feebbd454d4423643ce80e2a9ac94fa54ca49f");
+    }
+
+    private ProviderSelection() {
+    }
+
+    /**
+     * @return false if the jacksum2.providers system property is "fixed".
+     */
+    public static boolean isEnabled() {
+        return !"fixed".equalsIgnoreCase(System.getProperty(PROPERTY));
+    }
+
+    /**
+     * @return the profile file, ~/.jacksum2/providers.properties unless the
+     * jacksum2.providers.file system property says otherwise.
+     */
+    public static Path getDefaultFile() {
+        final String file = System.getProperty(FILE_PROPERTY);
+        return file != null
+                ? Paths.get(file)
+                : Paths.get(System.getProperty("user.home"), ".jacksum2", "providers.properties");
+    }
+
+    /**
+     * @return what the winners depend on, the JVM version, the architecture
+     * and how many processors there are.
+     */
+    public static String getMachine() {
+        return System.getProperty("java.vm.version")
+                + "," + System.getProperty("os.arch")
+                + "," + Runtime.getRuntime().availableProcessors();
+    }
+
+    private static String key(Algorithm algorithm) {
+        return algorithm.getCanonicalName() + "@" + getMachine();
+    }
+
+    private static byte[] digest(AbstractChecksum checksum, byte[] bytes) {
+        checksum.reset();
+        checksum.update(bytes, 0, bytes.length);
+        return checksum.getByteArray();
+    }
+
+    /**
+     * @param algorithm an algorithm
+     * @return every provider that has it and gives the same digests as the
+     * implementation wired to it, and the known ones.
+     */
+    public static List<DigestProvider> getCandidates(Algorithm algorithm) {
+        final byte[] abc;
+        final byte[] sample;
+        try {
+            final AbstractChecksum wired = algorithm.newChecksum(false);
+            abc = digest(wired, ABC);
+            sample = digest(wired, SAMPLE);
+        } catch (NoSuchAlgorithmException | RuntimeException ex) {
+            Logger.getLogger(ProviderSelection.class.getName()).throwing("ProviderSelection", "getCandidates", ex);
+            return Collections.emptyList();
+        }
+        final String known = KNOWN.get(algorithm);
+        if (known != null && !known.equals(Service.format(abc, false, 0, ' '))) {
+            // nothing to compare the providers with.
+            return Collections.emptyList();
+        }
+
+        final List<DigestProvider> answer = new ArrayList<>();
+        for (DigestProvider provider : DigestProvider.values()) {
+            try {
+                final AbstractChecksum checksum = provider.newInstance(algorithm.getCanonicalName());
+                if (Arrays.equals(abc, digest(checksum, ABC)) && Arrays.equals(sample, digest(checksum, SAMPLE))) {
+                    answer.add(provider);
+                }
+            } catch (NoSuchAlgorithmException | RuntimeException ex) {
+                // not in this provider.
+            }
+        }
+        return answer;
+    }
+
+    private static double nanosPerByte(AbstractChecksum checksum, long nanos) {
+        long bytes = 0;
+        final long start = System.nanoTime();
+        long elapsed;
+        do {
+            checksum.update(SAMPLE, 0, SAMPLE.length);
+            bytes += SAMPLE.length;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < nanos);
+        return (double) elapsed / bytes;
+    }
+
+    private static Optional<DigestProvider> select(Algorithm algorithm) {
+        final List<DigestProvider> candidates = getCandidates(algorithm);
+        if (candidates.size() < 2) {
+            // nothing to choose from, the wired one stays.
+            return Optional.empty();
+        }
+        final long nanos = TimeUnit.MILLISECONDS.toNanos(PROBE_MILLIS);
+        DigestProvider answer = null;
+        double fastest = Double.MAX_VALUE;
+        for (DigestProvider provider : candidates) {
+            try {
+                final AbstractChecksum checksum = provider.newInstance(algorithm.getCanonicalName());
+                // once for the JIT, once for real.
+                nanosPerByte(checksum, nanos);
+                final double cost = nanosPerByte(checksum, nanos);
+                if (cost < fastest) {
+                    fastest = cost;
+                    answer = provider;
+                }
+            } catch (NoSuchAlgorithmException ex) {
+                Logger.getLogger(ProviderSelection.class.getName()).throwing("ProviderSelection", "select", ex);
+            }
+        }
+        return Optional.ofNullable(answer);
+    }
+
+    /**
+     * Measures the algorithms that have not been selected yet, one after
+     * another on the calling thread.
+     *
+     * @param algorithms the algorithms about to be hashed.
+     * @return true if any of them was measured.
+     */
+    public static boolean probe(Collection<Algorithm> algorithms) {
+        if (!isEnabled()) {
+            return false;
+        }
+        boolean answer = false;
+        for (Algorithm algorithm : algorithms) {
+            if (!SELECTED.containsKey(algorithm)) {
+                getSelected(algorithm);
+                answer = true;
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * Takes the winners of this JVM and machine from a profile file, in place
+     * of anything measured before. Lines of other machines are ignored.
+     *
+     * @param file a profile file
+     * @return the algorithms the file has a winner for.
+     * @throws IOException if the file can't be read.
+     */
+    public static Set<Algorithm> load(Path file) throws IOException {
+        final Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        final Set<Algorithm> answer = EnumSet.noneOf(Algorithm.class);
+        for (Algorithm algorithm : Algorithm.values()) {
+            final String provider = properties.getProperty(key(algorithm));
+            if (provider == null) {
+                continue;
+            }
+            try {
+                SELECTED.put(algorithm, WIRED.equals(provider)
+                        ? Optional.empty()
+                        : Optional.of(DigestProvider.valueOf(provider.trim())));
+                answer.add(algorithm);
+            } catch (IllegalArgumentException ex) {
+                // a hand edited line, it is measured again.
+                Logger.getLogger(ProviderSelection.class.getName()).throwing("ProviderSelection", "load", ex);
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * Writes the winners of this JVM and machine to a profile file, keeping
+     * the lines of other machines that are already there.
+     *
+     * @param file where to write them, its directory is created if needed.
+     * @throws IOException if the file can't be written.
+     */
+    public static void store(Path file) throws IOException {
+        final Properties properties = new Properties();
+        if (Files.isRegularFile(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+            }
+        }
+        for (Map.Entry<Algorithm, Optional<DigestProvider>> selected : SELECTED.entrySet()) {
+            properties.setProperty(key(selected.getKey()), selected.getValue().map(DigestProvider::name).orElse(WIRED));
+        }
+        final Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        try (OutputStream out = Files.newOutputStream(file)) {
+            properties.store(out, "jacksum2 digest providers");
+        }
+    }
+
+    /**
+     * @param algorithm an algorithm
+     * @return the fastest provider of it, null to use the implementation
+     * wired to it. Measured the first time and remembered.
+     */
+    public static DigestProvider getSelected(Algorithm algorithm) {
+        if (!isEnabled()) {
+            return null;
+        }
+        Optional<DigestProvider> selected = SELECTED.get(algorithm);
+        if (selected == null) {
+            // not in computeIfAbsent, building some digests, like tree:tiger,
+            // asks for the selection of another one. Threads that get here
+            // at once all measure it, the first one to finish is kept.
+            final Optional<DigestProvider> measured = select(algorithm);
+            selected = SELECTED.putIfAbsent(algorithm, measured);
+            if (selected == null) {
+                selected = measured;
+            }
+        }
+        return selected.orElse(null);
+    }
+}
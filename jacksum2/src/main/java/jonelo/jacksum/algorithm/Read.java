@@ -23,6 +23,8 @@
  *****************************************************************************/
 package jonelo.jacksum.algorithm;
 
+import java.nio.ByteBuffer;
+
 public class Read extends AbstractChecksum {
 
     public Read() {
@@ -40,6 +42,12 @@ public class Read extends AbstractChecksum {
         this.length += length;
     }
 
+    @Override
+    public void update(ByteBuffer buffer) {
+        this.length += buffer.remaining();
+        buffer.position(buffer.limit());
+    }
+
 
     @Override
     public void update(byte b) {
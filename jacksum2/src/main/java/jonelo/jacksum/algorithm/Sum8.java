@@ -25,7 +25,12 @@
  */
 package jonelo.jacksum.algorithm;
 
-public class Sum8 extends AbstractChecksum {
+import java.nio.ByteBuffer;
+
+public class Sum8 extends AbstractChecksum implements Combinable {
+
+    // callers keep passing the same array, so its view is kept too.
+    private ByteBuffer words;
 
     public Sum8() {
         value = 0;
@@ -44,6 +49,13 @@ public class Sum8 extends AbstractChecksum {
         length++;
     }
 
+    @Override
+    public final void combine(AbstractChecksum next) {
+        checkCombinable(next);
+        value += next.value;
+        length += next.length;
+    }
+
     @Override
     public long getValue() {
         return value % 256;
@@ -56,13 +68,20 @@ public class Sum8 extends AbstractChecksum {
 
     @Override
     public final void update(byte[] bytes, int offset, int l) {
-        for (int i = offset; i < l + offset; i++) {
-            value += (bytes[i] & 0xFF);
-
-        }
+        this.words = Words.view(this.words, bytes);
+        value += Words.sum(this.words, offset, offset + l);
         length += l;
     }
 
+    @Override
+    public final void update(ByteBuffer buffer) {
+        final int l = buffer.remaining();
+        final int limit = buffer.limit();
+        value += Words.sum(Words.view(buffer), buffer.position(), limit);
+        buffer.position(limit);
+        this.length += l;
+    }
+
 }
 
 /*
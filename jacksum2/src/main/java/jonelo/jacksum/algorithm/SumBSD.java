@@ -25,10 +25,14 @@
  */
 package jonelo.jacksum.algorithm;
 
+import java.nio.ByteBuffer;
 import jonelo.jacksum.util.Service;
 
 public class SumBSD extends AbstractChecksum {
 
+    // callers keep passing the same array, so its view is kept too.
+    private ByteBuffer words;
+
     public SumBSD() {
         separator = " ";
         this.setName("sumbsd");
@@ -45,14 +49,48 @@ public class SumBSD extends AbstractChecksum {
         length++;
     }
 
+    // rotates right and adds, like update(byte).
+    private static int step(int sum, int b) {
+        return ((sum >>> 1) + ((sum & 1) << 15) + (b & 0xFF)) & 0xffff;
+    }
+
+    /**
+     * Every byte depends on the sum so far, so there is nothing to add in
+     * parallel, but a word is read at once and the steps are unrolled.
+     */
+    private void update(ByteBuffer words, int from, int to) {
+        int sum = (int) value;
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            final long word = words.getLong(i);
+            sum = step(sum, (int) word);
+            sum = step(sum, (int) (word >>> 8));
+            sum = step(sum, (int) (word >>> 16));
+            sum = step(sum, (int) (word >>> 24));
+            sum = step(sum, (int) (word >>> 32));
+            sum = step(sum, (int) (word >>> 40));
+            sum = step(sum, (int) (word >>> 48));
+            sum = step(sum, (int) (word >>> 56));
+        }
+        for (; i < to; i++) {
+            sum = step(sum, words.get(i));
+        }
+        value = sum;
+    }
+
     @Override
     public void update(byte[] bytes, int offset, int l) {
+        this.words = Words.view(this.words, bytes);
+        this.update(this.words, offset, offset + l);
+        this.length += l;
+    }
 
-        for (int i = offset; i < l + offset; i++) {
-            value = (value >> 1) + ((value & 1) << 15);
-            value += bytes[i] & 0xFF;
-            value &= 0xffff;
-        }
+    @Override
+    public void update(ByteBuffer buffer) {
+        final int l = buffer.remaining();
+        final int limit = buffer.limit();
+        this.update(Words.view(buffer), buffer.position(), limit);
+        buffer.position(limit);
         this.length += l;
     }
 
@@ -25,8 +25,13 @@
  */
 package jonelo.jacksum.algorithm;
 
+import java.nio.ByteBuffer;
+
 // implemented in Java from original GNU C source
-public class SumSysV extends AbstractChecksum {
+public class SumSysV extends AbstractChecksum implements Combinable {
+
+    // callers keep passing the same array, so its view is kept too.
+    private ByteBuffer words;
 
     public SumSysV() {
         separator = " ";
@@ -40,13 +45,27 @@ public class SumSysV extends AbstractChecksum {
 
     @Override
     public void update(byte[] bytes, int offset, int l) {
+        this.words = Words.view(this.words, bytes);
+        value += Words.sum(this.words, offset, offset + l);
+        this.length += l;
+    }
 
-        for (int i = offset; i < l + offset; i++) {
-            value += bytes[i] & 0xFF;
-        }
+    @Override
+    public void update(ByteBuffer buffer) {
+        final int l = buffer.remaining();
+        final int limit = buffer.limit();
+        value += Words.sum(Words.view(buffer), buffer.position(), limit);
+        buffer.position(limit);
         this.length += l;
     }
 
+    @Override
+    public void combine(AbstractChecksum next) {
+        checkCombinable(next);
+        value += next.value;
+        length += next.length;
+    }
+
     @Override
     public long getValue() {
         long r = (value & 0xffff) + (((value & 0xffffffff) >> 16) & 0xffff);
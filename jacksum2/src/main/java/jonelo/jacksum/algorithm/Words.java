@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2015 Federico Tello Gentile <federicotg@gmail.com>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package jonelo.jacksum.algorithm;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Word at a time kernels for the checksums that only add or xor bytes. The
+ * input is read 8 bytes at a time through a little endian long view, so
+ * every byte lands in its own lane of the word and the lanes are summed or
+ * xored together at the end.
+ *
+ * @author Federico Tello Gentile <federicotg@gmail.com>
+ */
+final class Words {
+
+    private static final long EVEN_BYTES = 0x00FF00FF00FF00FFL;
+
+    // each word adds at most 2 * 255 to a 16 bit lane.
+    private static final int WORDS_PER_FOLD = 128;
+
+    private Words() {
+    }
+
+    /**
+     * @param bytes an array
+     * @return a little endian view of the whole array, indexed like it.
+     */
+    static ByteBuffer view(byte[] bytes) {
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * @param cached a view returned before, may be null
+     * @param bytes an array
+     * @return the cached view if it is one of the array, a new view otherwise.
+     */
+    static ByteBuffer view(ByteBuffer cached, byte[] bytes) {
+        return cached != null && cached.array() == bytes ? cached : view(bytes);
+    }
+
+    /**
+     * @param buffer a buffer
+     * @return a little endian view of it, indexed like it, that does not touch
+     * its position or order.
+     */
+    static ByteBuffer view(ByteBuffer buffer) {
+        return buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static long lanes(long sums) {
+        return (sums & 0xffff) + ((sums >>> 16) & 0xffff) + ((sums >>> 32) & 0xffff) + (sums >>> 48);
+    }
+
+    /**
+     * @param words a little endian view
+     * @param from the first byte
+     * @param to one past the last byte
+     * @return the sum of the bytes as unsigned values.
+     */
+    static long sum(ByteBuffer words, int from, int to) {
+        long answer = 0;
+        int i = from;
+        while (to - i >= 8) {
+            final int end = i + 8 * Math.min(WORDS_PER_FOLD, (to - i) / 8);
+            long sums = 0;
+            for (; i < end; i += 8) {
+                final long word = words.getLong(i);
+                sums += (word & EVEN_BYTES) + ((word >>> 8) & EVEN_BYTES);
+            }
+            answer += lanes(sums);
+        }
+        for (; i < to; i++) {
+            answer += words.get(i) & 0xFF;
+        }
+        return answer;
+    }
+
+    /**
+     * @param words a little endian view
+     * @param from the first byte
+     * @param to one past the last byte
+     * @return every byte xored together.
+     */
+    static int xor(ByteBuffer words, int from, int to) {
+        long lanes = 0;
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            lanes ^= words.getLong(i);
+        }
+        lanes ^= lanes >>> 32;
+        lanes ^= lanes >>> 16;
+        lanes ^= lanes >>> 8;
+        int answer = (int) lanes & 0xFF;
+        for (; i < to; i++) {
+            answer ^= words.get(i) & 0xFF;
+        }
+        return answer;
+    }
+}
@@ -25,13 +25,25 @@
  */
 package jonelo.jacksum.algorithm;
 
-public class Xor8 extends AbstractChecksum {
+import java.nio.ByteBuffer;
+
+public class Xor8 extends AbstractChecksum implements Combinable {
+
+    // callers keep passing the same array, so its view is kept too.
+    private ByteBuffer words;
 
     public Xor8() {
         value = 0;
         this.setName("xor8");
     }
 
+    @Override
+    public void combine(AbstractChecksum next) {
+        checkCombinable(next);
+        value ^= next.value;
+        length += next.length;
+    }
+
     @Override
     public void update(byte b) {
         value ^= b & 0xFF;
@@ -40,10 +52,17 @@ public class Xor8 extends AbstractChecksum {
 
     @Override
     public void update(byte[] bytes, int offset, int l) {
+        this.words = Words.view(this.words, bytes);
+        value ^= Words.xor(this.words, offset, offset + l);
+        this.length += l;
+    }
 
-        for (int i = offset; i < l + offset; i++) {
-            value ^= bytes[i] & 0xFF;
-        }
+    @Override
+    public void update(ByteBuffer buffer) {
+        final int l = buffer.remaining();
+        final int limit = buffer.limit();
+        value ^= Words.xor(Words.view(buffer), buffer.position(), limit);
+        buffer.position(limit);
         this.length += l;
     }
 
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2015 Federico Tello Gentile <federicotg@gmail.com>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package jonelo.jacksum.concurrent;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Function;
+
+/**
+ * A bounded free list of reusable read buffers. Readers acquire a buffer, fill
+ * it and hand it to its consumers. The last consumer to release it puts it
+ * back here so it can be read into again.
+ *
+ * Buffers are created lazily, so the pool only ever holds as many buffers as
+ * were simultaneously in flight.
+ *
+ * @author Federico Tello Gentile <federicotg@gmail.com>
+ * @param <T> the pooled buffer type
+ */
+public class BufferPool<T> {
+
+    // an array backed queue does not allocate on offer/poll
+    private final BlockingQueue<T> free;
+    private final Function<BufferPool<T>, T> factory;
+
+    public BufferPool(int capacity, Function<BufferPool<T>, T> factory) {
+        this.free = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.factory = factory;
+    }
+
+    /**
+     * @return a recycled buffer or a new one if none is available.
+     */
+    public T acquire() {
+        final T buffer = this.free.poll();
+        return buffer != null ? buffer : this.factory.apply(this);
+    }
+
+    /**
+     * Returns a buffer to the pool. It is dropped if the pool is full.
+     *
+     * @param buffer a buffer no one references anymore.
+     */
+    public void recycle(T buffer) {
+        this.free.offer(buffer);
+    }
+
+    public int getAvailable() {
+        return this.free.size();
+    }
+}
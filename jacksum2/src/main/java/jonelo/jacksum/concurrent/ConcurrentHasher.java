@@ -18,26 +18,30 @@
 package jonelo.jacksum.concurrent;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 import jonelo.jacksum.algorithm.AbstractChecksum;
 import jonelo.jacksum.algorithm.Algorithm;
+import jonelo.jacksum.algorithm.ProviderSelection;
 
 /**
  * Sets up the concurrent execution and distributes hash algorithms among
@@ -49,11 +53,183 @@ public class ConcurrentHasher {
 
     private static final int TARGET_BUFFER_BYTES = 256 * 1024 * 1024;
 
-    private static final int READERS = 4;
+    // files found but not yet taken by the readers of their device
+    private static final int DEVICE_QUEUE_CAPACITY = 64 * 1024;
+
+    private static final int FILES_IN_FLIGHT_PER_READER = 2;
+
+    // files smaller than this are hashed by the reader itself
+    private static final int SMALL_FILE_THRESHOLD = 64 * 1024;
+
+    // files bigger than this are hashed in ranges when they can be.
+    private static final long SPLIT_THRESHOLD = 128 * 1024 * 1024;
 
     private static final int QUEUE_CAPACITY = 1024;
     private static final int THREAD_COUNT = Runtime.getRuntime().availableProcessors();
 
+    private ReadMode readMode = ReadMode.AUTO;
+
+    private int smallFileThreshold = SMALL_FILE_THRESHOLD;
+
+    private int readersPerDevice = 0;
+
+    private FileOrder fileOrder = FileOrder.SIZE;
+    private Map<Path, Long> inodes = Collections.emptyMap();
+
+    private int readSize = 0;
+
+    private HashStrategy hashStrategy = HashStrategy.AUTO;
+
+    private long splitThreshold = SPLIT_THRESHOLD;
+
+    private PipelineMetrics metrics;
+
+    private ProgressListener progressListener = ProgressListener.NONE;
+
+    private long timeout = 0;
+
+    private FileResultHandler resultHandler = null;
+
+    public ReadMode getReadMode() {
+        return readMode;
+    }
+
+    public void setReadMode(ReadMode readMode) {
+        this.readMode = readMode;
+    }
+
+    public FileOrder getFileOrder() {
+        return fileOrder;
+    }
+
+    /**
+     * @param fileOrder the order in which a list of files is read. Files
+     * coming through a channel are read as they arrive.
+     */
+    public void setFileOrder(FileOrder fileOrder) {
+        this.fileOrder = fileOrder;
+    }
+
+    /**
+     * @param inodes inode numbers of the files already known, like the ones
+     * found by a walk, so ordering by inode does not stat them again.
+     */
+    public void setInodes(Map<Path, Long> inodes) {
+        this.inodes = inodes;
+    }
+
+    public int getReadersPerDevice() {
+        return readersPerDevice;
+    }
+
+    /**
+     * @param readersPerDevice how many readers each device gets. Zero picks
+     * one for spinning disks and several for solid state ones.
+     */
+    public void setReadersPerDevice(int readersPerDevice) {
+        this.readersPerDevice = readersPerDevice;
+    }
+
+    public HashStrategy getHashStrategy() {
+        return hashStrategy;
+    }
+
+    /**
+     * @param hashStrategy whether the algorithms of a file run on one thread
+     * or each on its own.
+     */
+    public void setHashStrategy(HashStrategy hashStrategy) {
+        this.hashStrategy = hashStrategy;
+    }
+
+    public int getReadSize() {
+        return readSize;
+    }
+
+    /**
+     * @param readSize how many bytes are read at once. Zero picks a size for
+     * each file, bigger for bigger files.
+     */
+    public void setReadSize(int readSize) {
+        this.readSize = readSize;
+    }
+
+    public PipelineMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @param metrics where the readers and hashers count what they do. Runs
+     * add to whatever is already there. Null, the default, to count nothing
+     * and not pay for it.
+     */
+    public void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public ProgressListener getProgressListener() {
+        return progressListener;
+    }
+
+    /**
+     * @param progressListener told about every file and how far each
+     * algorithm got, from the reader and hashing threads.
+     */
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    public FileResultHandler getResultHandler() {
+        return resultHandler;
+    }
+
+    /**
+     * @param resultHandler takes the results of each file as soon as they are
+     * complete, hashFiles then returns an empty map. Only the files in flight
+     * are kept in memory. Null to get every result in the map.
+     */
+    public void setResultHandler(FileResultHandler resultHandler) {
+        this.resultHandler = resultHandler;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * @param timeout milliseconds a run of hashFiles may take before it is
+     * cancelled. Zero never cancels it.
+     */
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    public long getSplitThreshold() {
+        return splitThreshold;
+    }
+
+    /**
+     * @param splitThreshold files at least this many bytes are split in
+     * ranges hashed by several threads, when every algorithm can be combined
+     * and the device of the file has several readers. Zero never splits them.
+     */
+    public void setSplitThreshold(long splitThreshold) {
+        this.splitThreshold = splitThreshold;
+    }
+
+    public int getSmallFileThreshold() {
+        return smallFileThreshold;
+    }
+
+    /**
+     * @param smallFileThreshold files smaller than this many bytes are read
+     * whole and hashed by the reader thread. Zero sends every file through
+     * the HashingTasks.
+     */
+    public void setSmallFileThreshold(int smallFileThreshold) {
+        this.smallFileThreshold = smallFileThreshold;
+    }
+
     private static Hasher minWeight(List<Hasher> hashers) {
         Hasher answer = hashers.get(0);
         for (Hasher h : hashers) {
@@ -64,24 +240,41 @@ public class ConcurrentHasher {
         return answer;
     }
 
-    public void updateHashes(File src, List<HashAlgorithm> hashes) {
+    /**
+     * Hashes a single file with every algorithm, each one is left updated.
+     *
+     * @param src the file
+     * @param hashes the algorithms
+     * @throws IOException if the file could not be read, the algorithms are
+     * then left with whatever was read.
+     */
+    public void updateHashes(File src, List<HashAlgorithm> hashes) throws IOException {
+        final DataReader reader;
+        final Progress progress;
         try {
 
-            final int workingThreads = Math.max(1, Math.min(THREAD_COUNT, hashes.size()));
+            int weight = 0;
+            for (HashAlgorithm hash : hashes) {
+                weight += hash.getWeight();
+            }
+            // blocked, a single Hasher gets every algorithm.
+            final int workingThreads = this.hashStrategy.isBlocked(weight)
+                    ? 1
+                    : Math.max(1, Math.min(THREAD_COUNT, hashes.size()));
+
+            final int unitSize = ReadSize.forFile(src.length(), this.readSize);
 
-            // One queue per worker
-            final List<BlockingQueue<DataUnit>> queues
-                    = new ArrayList<>(workingThreads);
+            // One ring buffer read by every worker
+            final RingBuffer<DataUnit> ring = new RingBuffer<>(
+                    Math.max(2, Math.min(QUEUE_CAPACITY, TARGET_BUFFER_BYTES / unitSize)),
+                    workingThreads);
 
             /* One worker per processor */
             final List<Hasher> tasks = new ArrayList<>(workingThreads);
 
-            // creo las colas y los workers
+            // creo los workers
             for (int i = 0; i < workingThreads; i++) {
-                BlockingQueue<DataUnit> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY, true);
-                queues.add(queue);
-
-                tasks.add(new Hasher(queue));
+                tasks.add(new Hasher(ring, i));
             }
 
             // LPT-Algorithm (Longest Processing Time)
@@ -92,22 +285,65 @@ public class ConcurrentHasher {
             for (HashAlgorithm hash : hashes) {
                 minWeight(tasks).addMessageDigest(hash);
             }
+            progress = new Progress(this.progressListener);
+            for (Hasher task : tasks) {
+                task.setMetrics(this.metrics);
+                task.setProgress(src.toPath(), progress);
+            }
 
-            final ExecutorService pool = Executors.newFixedThreadPool(tasks.size() + 1);
-            pool.submit(new DataReader(src, queues));
-
-            List<Future<?>> futures = new ArrayList<>(tasks.size());
+            // the ring can hold a full ring of units plus the one being read.
+            final BufferPool<DataUnit> units = new BufferPool<>(
+                    ring.getCapacity() + 1,
+                    unitPool -> new DataUnit(unitPool, unitSize));
 
-            for (Runnable task : tasks) {
-                futures.add(pool.submit(task));
-            }
-            for (Future<?> f : futures) {
-                f.get();
+            final ExecutorService pool = Executors.newFixedThreadPool(tasks.size() + 1);
+            reader = new DataReader(src, ring, units, this.readMode);
+            reader.setMetrics(this.metrics);
+            reader.setProgress(progress);
+            progress.fileStarted(src.toPath(), src.length());
+            try {
+                // the reader always publishes a last unit, so the Hashers end.
+                pool.submit(reader);
+
+                List<Future<?>> futures = new ArrayList<>(tasks.size());
+
+                for (Runnable task : tasks) {
+                    futures.add(pool.submit(task));
+                }
+                for (Future<?> f : futures) {
+                    f.get();
+                }
+            } finally {
+                pool.shutdown();
             }
-            pool.shutdown();
 
         } catch (NoSuchAlgorithmException | InterruptedException | ExecutionException ex) {
             Logger.getLogger(ConcurrentHasher.class.getName()).throwing("ConcurrentHasher", "updateHashes", ex);
+            return;
+        }
+        final IOException failure = reader.getFailure();
+        if (failure != null) {
+            progress.fileFailed(src.toPath(), failure);
+            progress.finish();
+            throw failure;
+        }
+        progress.fileFinished(src.toPath());
+        progress.finish();
+    }
+
+    private static int weightOf(List<Algorithm> algorithms) {
+        int weight = 0;
+        for (Algorithm algorithm : algorithms) {
+            weight += HashAlgorithm.getWeight(algorithm.getCanonicalName());
+        }
+        return weight;
+    }
+
+    private static long sizeOf(Path filename) {
+        try {
+            return Files.size(filename);
+        } catch (IOException ex) {
+            return -1;
         }
     }
 
@@ -116,61 +352,343 @@ public class ConcurrentHasher {
             List<Algorithm> algorithms,
             boolean alternative,
             List<String> crcSpecs) throws NoSuchAlgorithmException, InterruptedException, ExecutionException {
+        return this.hashFiles(filenameList, Collections.emptyMap(), algorithms, alternative, crcSpecs);
+    }
 
-        // set up run.
-        // filenames to process go in a queue.
-        final Queue<Path> filenames = new ConcurrentLinkedQueue<>(filenameList);
+    /**
+     * @param filenameList files to hash.
+     * @param fileSizes sizes already known, the others are looked up.
+     * @param algorithms algorithms to compute for every file.
+     * @param alternative use alternative implementations.
+     * @param crcSpecs one spec for each CRC_GENERIC algorithm.
+     * @return the hash of every file and algorithm.
+     */
+    public Map<Pair<Path, Algorithm>, byte[]> hashFiles(
+            List<Path> filenameList,
+            Map<Path, Long> fileSizes,
+            List<Algorithm> algorithms,
+            boolean alternative,
+            List<String> crcSpecs) throws NoSuchAlgorithmException, InterruptedException, ExecutionException {
+        final HashJob job = this.newJob();
+        job.run(() -> this.hashFiles(job, filenameList, fileSizes, algorithms, alternative, crcSpecs));
+        return result(job);
+    }
 
-        // setup results map
-        final Map<Pair<Path, Algorithm>, byte[]> resultHolder = new ConcurrentHashMap<>();
+    /**
+     * Same as hashFiles, on a thread of its own.
+     *
+     * @param filenameList files to hash.
+     * @param fileSizes sizes already known, the others are looked up.
+     * @param algorithms algorithms to compute for every file.
+     * @param alternative use alternative implementations.
+     * @param crcSpecs one spec for each CRC_GENERIC algorithm.
+     * @return the running job.
+     */
+    public HashJob submit(
+            List<Path> filenameList,
+            Map<Path, Long> fileSizes,
+            List<Algorithm> algorithms,
+            boolean alternative,
+            List<String> crcSpecs) {
+        final HashJob job = this.newJob();
+        start(job, () -> this.hashFiles(job, filenameList, fileSizes, algorithms, alternative, crcSpecs));
+        return job;
+    }
 
-        //a queue and a HashingTask for each file and algorithm
-        Map<Pair<Path, Algorithm>, BlockingQueue<DataBlock>> dataQueueMap = new ConcurrentHashMap<>();
+    private HashJob newJob() {
+        final HashJob job = new HashJob();
+        if (this.timeout > 0) {
+            job.setDeadline(this.timeout, TimeUnit.MILLISECONDS);
+        }
+        return job;
+    }
 
-        Collection<Runnable> tasks = new ArrayList<>(filenameList.size());
+    private static void start(HashJob job, Callable<Map<Pair<Path, Algorithm>, byte[]>> pipeline) {
+        new Thread(() -> job.run(pipeline), "jacksum job").start();
+    }
 
-        // readers
-        final int readerCount = Math.min(READERS, filenameList.size());
+    // what the pipeline threw, as it would have thrown it.
+    private static Map<Pair<Path, Algorithm>, byte[]> result(HashJob job) throws NoSuchAlgorithmException, InterruptedException, ExecutionException {
+        try {
+            return job.get();
+        } catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof NoSuchAlgorithmException) {
+                throw (NoSuchAlgorithmException) cause;
+            }
+            if (cause instanceof InterruptedException) {
+                throw (InterruptedException) cause;
+            }
+            if (cause instanceof ExecutionException) {
+                throw (ExecutionException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw ex;
+        }
+    }
 
-        final int queueSize = TARGET_BUFFER_BYTES / readerCount / AbstractChecksum.BUFFERSIZE;
+    private Map<Pair<Path, Algorithm>, byte[]> hashFiles(
+            HashJob job,
+            List<Path> filenameList,
+            Map<Path, Long> fileSizes,
+            List<Algorithm> algorithms,
+            boolean alternative,
+            List<String> crcSpecs) throws NoSuchAlgorithmException, InterruptedException, ExecutionException {
 
+        // set up run.
+        final Map<Path, Long> sizes = new HashMap<>(fileSizes);
         for (Path filename : filenameList) {
-            int i = 0;
-            for (Algorithm algorithm : algorithms) {
-                BlockingQueue<DataBlock> blockQueue = new ArrayBlockingQueue<>(queueSize);
-                Runnable task;
-                if (algorithm.equals(Algorithm.CRC_GENERIC)) {
-                    task = new HashingTask(filename, algorithm, alternative, crcSpecs.get(i), blockQueue, resultHolder);
-                    i++;
-                } else {
-                    task = new HashingTask(filename, algorithm, blockQueue, resultHolder);
-                }
-                tasks.add(task);
-                dataQueueMap.put(new Pair<>(filename, algorithm), blockQueue);
-            }
+            sizes.computeIfAbsent(filename, ConcurrentHasher::sizeOf);
         }
 
-        Collection<Runnable> readers = new ArrayList<>(readerCount);
+        // filenames to process go in a queue, largest first unless told otherwise.
+        final List<Path> ordered = this.fileOrder.sort(filenameList, sizes, this.inodes);
 
-        for (int i = 0; i < readerCount; i++) {
-            readers.add(new FileReader(filenames, algorithms, dataQueueMap));
+        // every device gets its own readers.
+        final StorageDevices devices = new StorageDevices();
+        final Set<StorageDevice> distinct = new HashSet<>();
+        for (Path filename : filenameList) {
+            distinct.add(devices.of(filename));
         }
+        int readers = 0;
+        for (StorageDevice device : distinct) {
+            readers += this.readersFor(device);
+        }
+
+        return this.hashFiles(
+                job,
+                PathChannel.of(ordered),
+                Math.max(1, readers) * FILES_IN_FLIGHT_PER_READER,
+                filenameList.size(),
+                devices,
+                sizes,
+                algorithms,
+                alternative,
+                crcSpecs);
+    }
+
+    /**
+     * Hashes files as they are put in the channel, until it is closed. Files
+     * are hashed in the order they arrive.
+     *
+     * @param filenames files to hash, closed by the producer when done.
+     * @param fileSizes sizes of the files, filled by the producer before
+     * putting each file. Missing sizes are looked up.
+     * @param algorithms algorithms to compute for every file.
+     * @param alternative use alternative implementations.
+     * @param crcSpecs one spec for each CRC_GENERIC algorithm.
+     * @return the hash of every file and algorithm.
+     */
+    public Map<Pair<Path, Algorithm>, byte[]> hashFiles(
+            PathChannel filenames,
+            Map<Path, Long> fileSizes,
+            List<Algorithm> algorithms,
+            boolean alternative,
+            List<String> crcSpecs) throws NoSuchAlgorithmException, InterruptedException, ExecutionException {
+        final HashJob job = this.newJob();
+        job.run(() -> this.hashFiles(job, filenames, fileSizes, algorithms, alternative, crcSpecs));
+        return result(job);
+    }
+
+    /**
+     * Same as hashFiles, on a thread of its own. Cancelling the job cancels
+     * the channel too.
+     *
+     * @param filenames files to hash, closed by the producer when done.
+     * @param fileSizes sizes of the files, filled by the producer before
+     * putting each file. Missing sizes are looked up.
+     * @param algorithms algorithms to compute for every file.
+     * @param alternative use alternative implementations.
+     * @param crcSpecs one spec for each CRC_GENERIC algorithm.
+     * @return the running job.
+     */
+    public HashJob submit(
+            PathChannel filenames,
+            Map<Path, Long> fileSizes,
+            List<Algorithm> algorithms,
+            boolean alternative,
+            List<String> crcSpecs) {
+        final HashJob job = this.newJob();
+        // even if it is cancelled before it starts.
+        job.whenCancelled(filenames::cancel);
+        start(job, () -> this.hashFiles(job, filenames, fileSizes, algorithms, alternative, crcSpecs));
+        return job;
+    }
+
+    private Map<Pair<Path, Algorithm>, byte[]> hashFiles(
+            HashJob job,
+            PathChannel filenames,
+            Map<Path, Long> fileSizes,
+            List<Algorithm> algorithms,
+            boolean alternative,
+            List<String> crcSpecs) throws NoSuchAlgorithmException, InterruptedException, ExecutionException {
 
-        ExecutorService executor = Executors.newCachedThreadPool();
+        // devices are not known yet, so enough for the busiest kind.
+        final int readers = this.readersPerDevice > 0
+                ? this.readersPerDevice
+                : StorageDevice.Type.SOLID_STATE.getReaders();
 
-        for (Runnable reader : readers) {
-            executor.submit(reader);
+        boolean completed = false;
+        try {
+            final Map<Pair<Path, Algorithm>, byte[]> answer = this.hashFiles(
+                    job,
+                    filenames,
+                    readers * FILES_IN_FLIGHT_PER_READER,
+                    DEVICE_QUEUE_CAPACITY,
+                    new StorageDevices(),
+                    fileSizes,
+                    algorithms,
+                    alternative,
+                    crcSpecs);
+            completed = true;
+            return answer;
+        } finally {
+            if (!completed) {
+                // even if it failed before it took any, the producer must
+                // not wait to put files.
+                filenames.cancel();
+            }
         }
+    }
 
-        List<Future<?>> tasksFutures = new ArrayList<>(filenameList.size());
-        for (Runnable task : tasks) {
-            tasksFutures.add(executor.submit(task));
+    private int readersFor(StorageDevice device) {
+        return this.readersPerDevice > 0 ? this.readersPerDevice : device.getType().getReaders();
+    }
+
+    private Map<Pair<Path, Algorithm>, byte[]> hashFiles(
+            HashJob job,
+            PathChannel filenames,
+            int filesInFlight,
+            int deviceQueueCapacity,
+            StorageDevices devices,
+            Map<Path, Long> sizes,
+            List<Algorithm> algorithms,
+            boolean alternative,
+            List<String> crcSpecs) throws NoSuchAlgorithmException, InterruptedException, ExecutionException {
+
+        if (!alternative) {
+            // timed now, not while the readers and hashers compete with it.
+            ProviderSelection.probe(algorithms);
         }
 
-        for (Future<?> f : tasksFutures) {
-            f.get();
+        // setup results map
+        final Map<Pair<Path, Algorithm>, byte[]> resultHolder = new ConcurrentHashMap<>();
+
+        // as many of the biggest reads as fit, smaller reads use less memory.
+        final int queueSize = Math.max(2, TARGET_BUFFER_BYTES / filesInFlight / ReadSize.max(this.readSize));
+
+        // hashing tasks give their thread back while they wait for blocks,
+        // so one thread per core hashes any number of files.
+        final ForkJoinPool executor = new ForkJoinPool(THREAD_COUNT, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+
+        // readers are started as their devices show up.
+        final ExecutorService readerExecutor = Executors.newCachedThreadPool();
+
+        final Progress progress = new Progress(this.progressListener);
+
+        final FileScheduler scheduler = new FileScheduler(
+                algorithms,
+                alternative,
+                crcSpecs,
+                resultHolder,
+                executor,
+                filesInFlight,
+                queueSize,
+                sizes,
+                this.smallFileThreshold,
+                this.readSize,
+                this.hashStrategy.isBlocked(weightOf(algorithms)),
+                new RangeHasher(executor, THREAD_COUNT),
+                this.splitThreshold,
+                this.metrics,
+                progress,
+                job);
+        scheduler.setResultHandler(this.resultHandler);
+
+        // blocks are shared by every algorithm of a file so each file in
+        // flight has at most a full ring of blocks.
+        final BufferPool<DataBlock> blocks = new BufferPool<>(
+                filesInFlight * (RingBuffer.capacityFor(queueSize) + 1),
+                blockPool -> new DataBlock(blockPool, ReadSize.MIN));
+
+        // files go to the readers of their device.
+        final Map<StorageDevice, PathChannel> deviceChannels = new ConcurrentHashMap<>();
+        final List<Future<?>> readerFutures = new ArrayList<>();
+
+        // no more files, and readers waiting for anything are woken up.
+        final Runnable stop = () -> {
+            filenames.cancel();
+            for (PathChannel channel : deviceChannels.values()) {
+                channel.cancel();
+            }
+        };
+        job.whenCancelled(() -> {
+            stop.run();
+            readerExecutor.shutdownNow();
+        });
+
+        boolean completed = false;
+        try {
+            try {
+                Path filename = filenames.take();
+                while (filename != null) {
+                    final StorageDevice device = devices.of(filename);
+                    PathChannel channel = deviceChannels.get(device);
+                    if (channel == null) {
+                        channel = new PathChannel(deviceQueueCapacity);
+                        deviceChannels.put(device, channel);
+                        // ranges are concurrent reads, a device with a single
+                        // reader, like a spinning disk, would seek between them.
+                        final boolean splitting = this.readersFor(device) > 1;
+                        for (int i = 0; i < this.readersFor(device); i++) {
+                            final FileReader reader = new FileReader(channel, scheduler, blocks, this.readMode, splitting, device.getName() + " #" + i);
+                            readerFutures.add(readerExecutor.submit(() -> {
+                                try {
+                                    reader.run();
+                                } catch (RuntimeException | Error ex) {
+                                    // nobody would take the files of its device.
+                                    stop.run();
+                                    throw ex;
+                                }
+                            }));
+                        }
+                    }
+                    if (this.metrics != null) {
+                        this.metrics.queue("files " + device.getName()).sample(channel.size(), channel.getCapacity());
+                    }
+                    channel.put(filename);
+                    filename = filenames.take();
+                }
+            } catch (CancellationException ex) {
+                if (job.isCancelled()) {
+                    throw ex;
+                }
+                // a reader died, its future says why.
+            }
+            for (PathChannel channel : deviceChannels.values()) {
+                channel.close();
+            }
+            // once the readers are done every file has been started.
+            for (Future<?> f : readerFutures) {
+                f.get();
+            }
+            scheduler.awaitIdle();
+            completed = true;
+        } finally {
+            if (!completed) {
+                // whoever puts files must not wait for a pipeline that is gone.
+                stop.run();
+            }
+            // readers don't wait for files that will never come.
+            for (PathChannel channel : deviceChannels.values()) {
+                channel.close();
+            }
+            executor.shutdown();
+            readerExecutor.shutdown();
         }
-        executor.shutdown();
+        progress.finish();
 
         return resultHolder;
 
@@ -17,27 +17,149 @@
  */
 package jonelo.jacksum.concurrent;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import jonelo.jacksum.algorithm.AbstractChecksum;
 
 /**
+ * A block of file data shared by every HashingTask of the same file.
+ * Pooled blocks are reference counted and go back to their pool once every
+ * consumer has released them.
  *
  * @author Federico Tello Gentile <federicotg@gmail.com>
  */
 public class DataBlock {
-    
-    private final byte[] bytes;
-    private final int length;
-    
-    public DataBlock(byte[] bytes, int length){
+
+    /**
+     * Marks the end of a file. It is never recycled.
+     */
+    public static final DataBlock LAST = new DataBlock((byte[]) null, -1);
+
+    private byte[] bytes;
+    private int length;
+    private ByteBuffer mapped;
+    private final AtomicInteger references = new AtomicInteger();
+    private final BufferPool<DataBlock> pool;
+
+    public DataBlock(byte[] bytes, int length) {
         this.bytes = bytes;
         this.length = length;
+        this.pool = null;
+    }
+
+    DataBlock(BufferPool<DataBlock> pool, int capacity) {
+        this.bytes = new byte[capacity];
+        this.pool = pool;
+    }
+
+    public int readData(InputStream is) throws IOException {
+        return this.readData(is, this.bytes.length);
+    }
+
+    /**
+     * Reads up to readSize bytes, growing the block if it is smaller. Only a
+     * read at the end of the file comes back short.
+     *
+     * @param is where to read from
+     * @param readSize how much to read
+     * @return how many bytes were read, -1 at the end of the file.
+     * @throws IOException if reading fails.
+     */
+    public int readData(InputStream is, int readSize) throws IOException {
+        this.mapped = null;
+        if (this.bytes.length < readSize) {
+            this.bytes = new byte[readSize];
+        }
+        this.length = readFully(is, this.bytes, readSize);
+        return this.length;
     }
-    
-    public boolean isNotLast(){
+
+    static int readFully(InputStream is, byte[] bytes, int readSize) throws IOException {
+        int total = 0;
+        while (total < readSize) {
+            final int read = is.read(bytes, total, readSize - total);
+            if (read < 0) {
+                return total == 0 ? -1 : total;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * Makes this block a view of a mapped region instead of its own bytes.
+     *
+     * @param region a slice of a mapped file
+     */
+    public void setMapped(ByteBuffer region) {
+        this.mapped = region;
+        this.length = region.remaining();
+    }
+
+    public int getLength() {
+        return this.length;
+    }
+
+    public boolean isNotLast() {
         return this.bytes != null;
     }
-    
-    public void updateChecksum(AbstractChecksum chsum){
-        chsum.update(this.bytes, 0, this.length);
+
+    /**
+     * Updates every checksum a chunk at a time, so each chunk is still in
+     * the cache when the next checksum gets it.
+     *
+     * @param checksums the checksums to update
+     * @param chunkSize bytes each checksum gets before the next one.
+     */
+    public void updateChecksums(List<AbstractChecksum> checksums, int chunkSize) {
+        // one view for the whole block, moved over each chunk.
+        final ByteBuffer view = this.mapped != null ? this.mapped.duplicate() : null;
+        final int start = view != null ? view.position() : 0;
+        for (int offset = 0; offset < this.length; offset += chunkSize) {
+            final int chunk = Math.min(chunkSize, this.length - offset);
+            for (AbstractChecksum checksum : checksums) {
+                if (view != null) {
+                    // the limit first, it only grows from chunk to chunk.
+                    view.limit(start + offset + chunk);
+                    view.position(start + offset);
+                    checksum.update(view);
+                } else {
+                    checksum.update(this.bytes, offset, chunk);
+                }
+            }
+        }
+    }
+
+    public void updateChecksum(AbstractChecksum chsum) {
+        if (this.mapped != null) {
+            // every consumer needs its own position.
+            chsum.update(this.mapped.duplicate());
+        } else {
+            chsum.update(this.bytes, 0, this.length);
+        }
+    }
+
+    /**
+     * Sets how many consumers have to release this block before it can be
+     * reused. Must be called before the block is published.
+     *
+     * @param consumers the number of consumers
+     */
+    public void retain(int consumers) {
+        this.references.set(consumers);
+    }
+
+    /**
+     * Called by each consumer once it is done with this block.
+     */
+    public void release() {
+        if (this.pool != null && this.references.decrementAndGet() == 0) {
+            // don't keep the mapping reachable while pooled.
+            this.mapped = null;
+            this.pool.recycle(this);
+        }
     }
 }
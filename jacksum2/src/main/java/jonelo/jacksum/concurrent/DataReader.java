@@ -18,60 +18,162 @@
 
 package jonelo.jacksum.concurrent;
 
-import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Collection;
-import java.util.concurrent.BlockingQueue;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
 import java.util.logging.Logger;
 import jonelo.jacksum.algorithm.AbstractChecksum;
 
 /**
- * Reads the file and puts its data in several queues for processing by Hashers.
- * There's one queue per processor.
+ * Reads or maps the file and publishes its data to a ring buffer read by every
+ * Hasher.
+ * Units come from a pool and go back to it once every Hasher has released
+ * them.
  * 
  * @author Federico Tello Gentile <federicotg@gmail.com>
  */
 public class DataReader implements Runnable {
 
-    private final Collection<BlockingQueue<DataUnit>> queues;
+    private final RingBuffer<DataUnit> ring;
     private final File file;
+    private final BufferPool<DataUnit> pool;
+    private final ReadMode readMode;
+    private PipelineMetrics.Stage stage;
+    private PipelineMetrics.Queue queue;
+    private Progress progress;
+    private boolean lastPublished;
+    private volatile IOException failure;
 
-    public DataReader(File file, Collection<BlockingQueue<DataUnit>> queues) {
-        this.queues = queues;
+    public DataReader(File file, RingBuffer<DataUnit> ring) {
+        this(file, ring, new BufferPool<>(1, pool -> new DataUnit(pool, AbstractChecksum.BUFFERSIZE)), ReadMode.STREAM);
+    }
+
+    public DataReader(File file, RingBuffer<DataUnit> ring, BufferPool<DataUnit> pool, ReadMode readMode) {
+        this.ring = ring;
         this.file = file;
+        this.pool = pool;
+        this.readMode = readMode;
+    }
 
+    /**
+     * @param metrics where to count reading and blocked time, null for
+     * nowhere.
+     */
+    public void setMetrics(PipelineMetrics metrics) {
+        this.stage = metrics == null ? null : metrics.reader(this.file.getName());
+        this.queue = metrics == null ? null : metrics.queue("units");
+    }
+
+    /**
+     * @param progress where to count read bytes, null for nowhere.
+     */
+    public void setProgress(Progress progress) {
+        this.progress = progress;
     }
 
     private void enqueue(DataUnit du) throws InterruptedException {
-        for (BlockingQueue<DataUnit> queue : this.queues) {
-            queue.put(du);
+        if (this.progress != null) {
+            this.progress.read(du.getLength());
+        }
+        du.retain(this.ring.getConsumers());
+        if (this.stage == null) {
+            this.ring.publish(du);
+            return;
         }
+        this.queue.sample(this.ring.size(), this.ring.getCapacity());
+        final long start = System.nanoTime();
+        this.ring.publish(du);
+        this.stage.waited(System.nanoTime() - start);
     }
 
-    @Override
-    public void run() {
-
-        try(InputStream is = new BufferedInputStream(new FileInputStream(this.file))) {
+    private int read(DataUnit du, InputStream is) throws IOException {
+        if (this.stage == null) {
+            return du.readData(is);
+        }
+        final long start = System.nanoTime();
+        final int read = du.readData(is);
+        this.stage.busy(Math.max(0, read), System.nanoTime() - start);
+        return read;
+    }
 
-            DataUnit du = new DataUnit(AbstractChecksum.BUFFERSIZE);
-            int read = du.readData(is);
-            while(read > 0){
+    private void map() throws IOException, InterruptedException {
+        try (MappedSlices slices = new MappedSlices(this.file.toPath())) {
+            ByteBuffer slice;
+            long start = System.nanoTime();
+            while ((slice = slices.next()) != null) {
+                if (this.stage != null) {
+                    // the pages are only read when they are hashed.
+                    this.stage.busy(slice.remaining(), System.nanoTime() - start);
+                }
+                DataUnit du = this.pool.acquire();
+                du.setMapped(slice);
                 enqueue(du);
-                du = new DataUnit(AbstractChecksum.BUFFERSIZE);
-                read = du.readData(is);
+                start = System.nanoTime();
             }
-            if(read == -1){
-                // enqueue last one in case the last one is zero bytes
-                du = new DataUnit(1);
-                du.setLength(0);
+        }
+    }
+
+    private void read() throws IOException, InterruptedException {
+        // reads are already buffer sized so there is no point in a BufferedInputStream.
+        try (InputStream is = new FileInputStream(this.file)) {
+
+            DataUnit du = this.pool.acquire();
+            int read = this.read(du, is);
+            while (read > 0) {
                 enqueue(du);
+                if (!du.isNotLast()) {
+                    // a short read was the last one.
+                    this.lastPublished = true;
+                    return;
+                }
+                du = this.pool.acquire();
+                read = this.read(du, is);
             }
+            this.pool.recycle(du);
+        }
+    }
 
-        } catch (IOException | InterruptedException ex) {
+    /**
+     * @return what went wrong reading the file, null if it was read
+     * completely. Only valid once the reader is done.
+     */
+    public IOException getFailure() {
+        return this.failure;
+    }
+
+    @Override
+    public void run() {
+        try {
+            if (this.readMode.isMapped(this.file.toPath())) {
+                this.map();
+            } else {
+                this.read();
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(ConcurrentHasher.class.getName()).throwing("DataReader", "run", ex);
+            this.failure = ex;
+        } catch (InterruptedException ex) {
             Logger.getLogger(ConcurrentHasher.class.getName()).throwing("DataReader", "run", ex);
+            this.failure = new InterruptedIOException(ex.getMessage());
+        } finally {
+            if (!this.lastPublished) {
+                // an empty last unit, even if reading failed, so the Hashers finish.
+                this.publishLast();
+            }
+        }
+    }
+
+    private void publishLast() {
+        try {
+            DataUnit du = this.pool.acquire();
+            du.setLength(0);
+            enqueue(du);
+        } catch (InterruptedException ex) {
+            Logger.getLogger(ConcurrentHasher.class.getName()).throwing("DataReader", "publishLast", ex);
+            Thread.currentThread().interrupt();
         }
     }
 }
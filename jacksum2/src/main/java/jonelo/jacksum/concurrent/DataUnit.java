@@ -20,9 +20,14 @@ package jonelo.jacksum.concurrent;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import jonelo.jacksum.algorithm.AbstractChecksum;
 
 /**
+ * A block of data shared by every Hasher. Pooled units are reference counted
+ * and go back to their pool once every Hasher has released them.
  *
  * @author Federico Tello Gentile <federicotg@gmail.com>
  */
@@ -30,25 +35,103 @@ public class DataUnit {
 
     private final byte[] bytes;
     private int length;
+    private ByteBuffer mapped;
+    private final AtomicInteger references = new AtomicInteger();
+    private final BufferPool<DataUnit> pool;
 
     public DataUnit(int length){
+        this(null, length);
+    }
+
+    DataUnit(BufferPool<DataUnit> pool, int length){
         this.bytes = new byte[length];
+        this.pool = pool;
     }
 
     public int readData(InputStream is) throws IOException{
-        this.length = is.read(this.bytes);
+        this.mapped = null;
+        // a short read has to mean the end of the file.
+        this.length = DataBlock.readFully(is, this.bytes, this.bytes.length);
+        return this.length;
+    }
+
+    /**
+     * Makes this unit a view of a mapped region instead of its own bytes.
+     * Mapped units are never the last one.
+     *
+     * @param region a slice of a mapped file
+     */
+    public void setMapped(ByteBuffer region) {
+        this.mapped = region;
+        this.length = region.remaining();
+    }
+
+    public int getLength() {
         return this.length;
     }
 
     public boolean isNotLast(){
-        return this.length == this.bytes.length;
+        return this.mapped != null || this.length == this.bytes.length;
+    }
+
+    /**
+     * Updates every checksum a chunk at a time, so each chunk is still in
+     * the cache when the next checksum gets it.
+     *
+     * @param checksums the checksums to update
+     * @param chunkSize bytes each checksum gets before the next one.
+     */
+    public void updateMessageDigests(List<AbstractChecksum> checksums, int chunkSize) {
+        // one view for the whole block, moved over each chunk.
+        final ByteBuffer view = this.mapped != null ? this.mapped.duplicate() : null;
+        final int start = view != null ? view.position() : 0;
+        for (int offset = 0; offset < this.length; offset += chunkSize) {
+            final int chunk = Math.min(chunkSize, this.length - offset);
+            for (AbstractChecksum md : checksums) {
+                if (view != null) {
+                    // the limit first, it only grows from chunk to chunk.
+                    view.limit(start + offset + chunk);
+                    view.position(start + offset);
+                    md.update(view);
+                } else {
+                    md.update(this.bytes, offset, chunk);
+                }
+            }
+        }
     }
 
     public void updateMessageDigest(AbstractChecksum md){
-        md.update(this.bytes, 0, this.length);
+        if (this.mapped != null) {
+            // every Hasher needs its own position.
+            md.update(this.mapped.duplicate());
+        } else {
+            md.update(this.bytes, 0, this.length);
+        }
     }
 
     public void setLength(int length) {
+        this.mapped = null;
         this.length = length;
     }
+
+    /**
+     * Sets how many Hashers have to release this unit before it can be
+     * reused. Must be called before the unit is enqueued.
+     *
+     * @param consumers the number of Hashers
+     */
+    public void retain(int consumers) {
+        this.references.set(consumers);
+    }
+
+    /**
+     * Called by each Hasher once it is done with this unit.
+     */
+    public void release() {
+        if (this.pool != null && this.references.decrementAndGet() == 0) {
+            // don't keep the mapping reachable while pooled.
+            this.mapped = null;
+            this.pool.recycle(this);
+        }
+    }
 }
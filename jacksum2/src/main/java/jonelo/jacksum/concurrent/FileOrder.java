@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2015 Federico Tello Gentile <federicotg@gmail.com>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package jonelo.jacksum.concurrent;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The order in which a list of files is handed to the readers.
+ *
+ * @author Federico Tello Gentile <federicotg@gmail.com>
+ */
+public enum FileOrder {
+
+    /**
+     * Largest first, so a big file does not start last and keep everybody
+     * waiting.
+     */
+    SIZE {
+                @Override
+                public List<Path> sort(List<Path> files, Map<Path, Long> sizes, Map<Path, Long> inodes) {
+                    final List<Path> answer = new ArrayList<>(files);
+                    answer.sort(Comparator.comparing((Path file) -> sizes.getOrDefault(file, 0L)).reversed());
+                    return answer;
+                }
+            },
+    /**
+     * By inode number. File systems tend to allocate data close to its inode,
+     * so on a spinning disk this reads the files mostly in physical order.
+     * Where there are no inodes files keep their order. Inodes not known
+     * from the walk cost another stat.
+     */
+    INODE {
+                @Override
+                public List<Path> sort(List<Path> files, Map<Path, Long> sizes, Map<Path, Long> inodes) {
+                    final Map<Path, Long> known = new HashMap<>();
+                    for (Path file : files) {
+                        final Long inode = inodes.get(file);
+                        known.put(file, inode != null ? inode : statInode(file));
+                    }
+                    final List<Path> answer = new ArrayList<>(files);
+                    answer.sort(Comparator.comparing((Path file) -> known.get(file)));
+                    return answer;
+                }
+            },
+    /**
+     * By path, so the files of a directory are read together.
+     */
+    DIRECTORY {
+                @Override
+                public List<Path> sort(List<Path> files, Map<Path, Long> sizes, Map<Path, Long> inodes) {
+                    final List<Path> answer = new ArrayList<>(files);
+                    answer.sort(Comparator.naturalOrder());
+                    return answer;
+                }
+            },
+    /**
+     * As given.
+     */
+    NONE {
+                @Override
+                public List<Path> sort(List<Path> files, Map<Path, Long> sizes, Map<Path, Long> inodes) {
+                    return files;
+                }
+            };
+
+    private static long statInode(Path file) {
+        try {
+            final Object ino = Files.getAttribute(file, "unix:ino");
+            return ino instanceof Number ? ((Number) ino).longValue() : 0;
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException ex) {
+            return 0;
+        }
+    }
+
+    /**
+     * The inode number in the file key of the attributes, so a walk that
+     * already has them does not stat the file again. Unix file keys print as
+     * (dev=...,ino=...), there is no other way to it.
+     *
+     * @param attributes attributes of a file
+     * @return its inode number, 0 if the file key does not have it.
+     */
+    public static long inode(BasicFileAttributes attributes) {
+        final Object key = attributes.fileKey();
+        if (key == null) {
+            return 0;
+        }
+        final String text = key.toString();
+        final int start = text.indexOf("ino=");
+        if (start < 0) {
+            return 0;
+        }
+        int end = start + 4;
+        while (end < text.length() && Character.isDigit(text.charAt(end))) {
+            end++;
+        }
+        try {
+            return Long.parseLong(text.substring(start + 4, end));
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+
+    /**
+     * @param files files to hash
+     * @param sizes the size of the files, missing ones count as empty.
+     * @return the files in this order.
+     */
+    public List<Path> sort(List<Path> files, Map<Path, Long> sizes) {
+        return this.sort(files, sizes, Collections.emptyMap());
+    }
+
+    /**
+     * @param files files to hash
+     * @param sizes the size of the files, missing ones count as empty.
+     * @param inodes inode numbers already known, from FileOrder.inode.
+     * @return the files in this order.
+     */
+    public abstract List<Path> sort(List<Path> files, Map<Path, Long> sizes, Map<Path, Long> inodes);
+}
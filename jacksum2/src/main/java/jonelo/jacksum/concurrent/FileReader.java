@@ -17,77 +17,211 @@
  */
 package jonelo.jacksum.concurrent;
 
-import java.io.BufferedInputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Collection;
-import java.util.Map;
-import java.util.Queue;
-import java.util.concurrent.BlockingQueue;
-import java.util.logging.Level;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
 import java.util.logging.Logger;
-import jonelo.jacksum.algorithm.Algorithm;
+import jonelo.jacksum.algorithm.AbstractChecksum;
 
 /**
+ * Reads files into pooled DataBlocks, or maps them, and publishes each block
+ * once to the ring buffer every HashingTask of the file reads from. The ring
+ * and its HashingTasks are set up by the FileScheduler when the file is
+ * started. Small files are read whole and hashed right here instead, and big
+ * ones may be hashed in ranges when the device takes concurrent reads.
  *
  * @author Federico Tello Gentile <federicotg@gmail.com>
  */
 public class FileReader implements Runnable {
 
-    private Queue<Path> filenameSource;
-    private Map<Pair<Path, Algorithm>, BlockingQueue<DataBlock>> dataQueueMap;
-    private Collection<Algorithm> algorithms;
+    private final PathChannel filenameSource;
+    private final FileScheduler scheduler;
+    private final BufferPool<DataBlock> pool;
+    private final ReadMode readMode;
+    private final boolean splitting;
+    private final PipelineMetrics.Stage stage;
+    private final PipelineMetrics.Queue blocks;
+    private final Progress progress;
+
+    // for small files, only used by this reader.
+    private List<AbstractChecksum> checksums;
+
+    public FileReader(
+            PathChannel filenameSource,
+            FileScheduler scheduler) {
+        this(filenameSource,
+                scheduler,
+                new BufferPool<>(1, pool -> new DataBlock(pool, ReadSize.MIN)),
+                ReadMode.STREAM,
+                false,
+                "reader");
+    }
 
     public FileReader(
-            Queue<Path> filenameSource,
-            Collection<Algorithm> algorithms,
-            Map<Pair<Path, Algorithm>, BlockingQueue<DataBlock>> dataQueueMap) {
-        this.dataQueueMap = dataQueueMap;
+            PathChannel filenameSource,
+            FileScheduler scheduler,
+            BufferPool<DataBlock> pool,
+            ReadMode readMode,
+            boolean splitting,
+            String name) {
+        this.scheduler = scheduler;
         this.filenameSource = filenameSource;
-        this.algorithms = algorithms;
+        this.pool = pool;
+        this.readMode = readMode;
+        this.splitting = splitting;
+        final PipelineMetrics metrics = scheduler.getMetrics();
+        this.stage = metrics == null ? null : metrics.reader(name);
+        this.blocks = metrics == null ? null : metrics.queue("blocks");
+        this.progress = scheduler.getProgress();
+    }
+
+    // only measured with metrics.
+    private long now() {
+        return this.stage == null ? 0 : System.nanoTime();
+    }
+
+    private void busy(long bytes, long start) {
+        if (this.stage != null) {
+            this.stage.busy(bytes, System.nanoTime() - start);
+        }
+    }
+
+    private void publish(RingBuffer<DataBlock> ring, DataBlock data) throws InterruptedException {
+        if (this.stage == null) {
+            ring.publish(data);
+            return;
+        }
+        this.blocks.sample(ring.size(), ring.getCapacity());
+        final long start = System.nanoTime();
+        ring.publish(data);
+        this.stage.waited(System.nanoTime() - start);
+    }
+
+    private void read(Path filename, RingBuffer<DataBlock> ring) throws IOException, InterruptedException {
+        // reads are already buffer sized so there is no point in a BufferedInputStream.
+        try (InputStream is = new FileInputStream(filename.toFile())) {
+
+            final int readSize = this.scheduler.readSizeFor(filename);
+            DataBlock data = this.pool.acquire();
+            long start = this.now();
+            while (!this.scheduler.isCancelled() && data.readData(is, readSize) > 0) {
+                this.busy(data.getLength(), start);
+                this.progress.read(data.getLength());
+                // log("Read a block from "+filename);
+                data.retain(ring.getConsumers());
+                this.publish(ring, data);
+                data = this.pool.acquire();
+                start = this.now();
+            }
+            // the last read got nothing, so the block goes back unused.
+            this.pool.recycle(data);
+        }
+    }
+
+    private void hashInline(Path filename) throws NoSuchAlgorithmException {
+        if (this.checksums == null) {
+            this.checksums = this.scheduler.newChecksums();
+        }
+        byte[] bytes;
+        try {
+            final long start = this.now();
+            bytes = Files.readAllBytes(filename);
+            this.busy(bytes.length, start);
+            this.progress.read(bytes.length);
+        } catch (IOException ex) {
+            Logger.getLogger(FileReader.class.getName()).throwing("FileReader", "hashInline", ex);
+            this.scheduler.failed(filename, ex);
+            this.scheduler.finished(filename);
+            return;
+        }
+        this.scheduler.hashInline(filename, bytes, this.checksums);
+    }
+
+    private void map(Path filename, RingBuffer<DataBlock> ring) throws IOException, InterruptedException {
+        try (MappedSlices slices = new MappedSlices(filename, this.scheduler.readSizeFor(filename))) {
+            ByteBuffer slice;
+            long start = this.now();
+            while (!this.scheduler.isCancelled() && (slice = slices.next()) != null) {
+                // the pages are only read when they are hashed.
+                this.busy(slice.remaining(), start);
+                this.progress.read(slice.remaining());
+                DataBlock data = this.pool.acquire();
+                data.setMapped(slice);
+                data.retain(ring.getConsumers());
+                this.publish(ring, data);
+                start = this.now();
+            }
+        }
+    }
+
+    private void hash(Path filename) throws InterruptedException {
+
+        this.progress.fileStarted(filename, this.scheduler.getSize(filename));
+
+        if (this.scheduler.isSmall(filename)) {
+            try {
+                this.hashInline(filename);
+            } catch (NoSuchAlgorithmException ex) {
+                Logger.getLogger(FileReader.class.getName()).throwing("FileReader", "hash", ex);
+                this.scheduler.failed(filename, ex);
+                this.scheduler.finished(filename);
+            }
+            return;
+        }
+
+        if (this.splitting && this.scheduler.isSplit(filename)) {
+            try {
+                this.scheduler.hashRanges(filename);
+            } catch (NoSuchAlgorithmException ex) {
+                Logger.getLogger(FileReader.class.getName()).throwing("FileReader", "hash", ex);
+                this.scheduler.failed(filename, ex);
+                this.scheduler.finished(filename);
+            }
+            return;
+        }
+
+        // every HashingTask of the file reads from the same ring, waiting
+        // for a file to finish counts as blocked.
+        final long start = this.now();
+        final RingBuffer<DataBlock> ring = this.scheduler.start(filename);
+        if (this.stage != null) {
+            this.stage.waited(System.nanoTime() - start);
+        }
+
+        try {
+            if (this.readMode.isMapped(filename)) {
+                this.map(filename, ring);
+            } else {
+                this.read(filename, ring);
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(FileReader.class.getName()).throwing("FileReader", "hash", ex);
+            // before the last block, so the HashingTasks leave no results.
+            this.scheduler.failed(filename, ex);
+        } finally {
+            // last block, even if reading failed, so the HashingTasks finish.
+            //log("Last block from "+filename);
+            ring.publish(DataBlock.LAST);
+        }
     }
 
     @Override
     public void run() {
         //  log("FileReader starts...");
-        Path filename = this.filenameSource.poll();
-        while (filename != null) {
-
-            try (InputStream is = new BufferedInputStream(Files.newInputStream(filename))) {
-
-                byte[] bytes = new byte[8192];
-                int read;
-                while ((read = is.read(bytes)) > 0) {
-                    // log("Read a block from "+filename);
-                    DataBlock data = new DataBlock(bytes, read);
-                    for (Algorithm algorithm : this.algorithms) {
-                        this.dataQueueMap.get(new Pair<>(filename, algorithm)).put(data);
-                    }
-
-                    bytes = new byte[8192];
-                }
-                // last block
-                //log("Last block from "+filename);
-                for (Algorithm algorithm : this.algorithms) {
-                    this.dataQueueMap.get(new Pair<>(filename, algorithm)).put(new DataBlock(null, -1));
-                }
-            } catch (IOException | InterruptedException ex) {
-                Logger.getLogger(FileReader.class.getName()).throwing("FileReader", "run", ex);
-                try {
-                    for (Algorithm algorithm : this.algorithms) {
-
-                        this.dataQueueMap.get(new Pair<>(filename, algorithm)).put(new DataBlock(null, -1));
-                    }
-                } catch (InterruptedException iEx) {
-                    Logger.getLogger(FileReader.class.getName()).throwing("FileReader", "run", iEx);
-                }
+        try {
+            Path filename = this.filenameSource.take();
+            while (filename != null && !this.scheduler.isCancelled()) {
+                this.hash(filename);
+                filename = this.filenameSource.take();
             }
-
-            filename = this.filenameSource.poll();
+        } catch (InterruptedException ex) {
+            Logger.getLogger(FileReader.class.getName()).throwing("FileReader", "run", ex);
         }
-
         // log("FileReader finished."+I.incrementAndGet());
     }
 
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2015 Federico Tello Gentile <federicotg@gmail.com>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package jonelo.jacksum.concurrent;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Takes the results of each file as soon as every algorithm is done with it,
+ * so they don't have to be kept until the whole run is over.
+ *
+ * @author Federico Tello Gentile <federicotg@gmail.com>
+ */
+@FunctionalInterface
+public interface FileResultHandler {
+
+    /**
+     * Called once for every file that was hashed, from the reader and hashing
+     * threads, several at once. Failed files go to failed instead.
+     *
+     * @param file the file
+     * @param hashes the hash of every algorithm, in the order the algorithms
+     * were given.
+     */
+    void hashed(Path file, List<byte[]> hashes);
+
+    /**
+     * Called once for every file that could not be hashed, unless the job was
+     * cancelled.
+     *
+     * @param file the file
+     * @param ex what went wrong.
+     */
+    default void failed(Path file, Exception ex) {
+    }
+}
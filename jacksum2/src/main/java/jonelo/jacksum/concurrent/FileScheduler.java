@@ -0,0 +1,440 @@
+/*
+ * Copyright (C) 2015 Federico Tello Gentile <federicotg@gmail.com>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package jonelo.jacksum.concurrent;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import jonelo.jacksum.algorithm.AbstractChecksum;
+import jonelo.jacksum.algorithm.Algorithm;
+
+/**
+ * Creates the ring buffer and the HashingTasks of a file when a reader starts
+ * reading it, so only the files currently in flight hold any state.
+ *
+ * At most a fixed number of files are in flight. A reader waits for a file to
+ * be completely hashed before it can start a new one, which bounds both the
+ * buffered data and the number of HashingTasks running at the same time.
+ *
+ * Files smaller than the small file threshold skip all that. The reader reads
+ * them in one go and hashes them itself. Files bigger than the split threshold
+ * are hashed in ranges by the reader and the executor when every algorithm can
+ * be combined.
+ *
+ * @author Federico Tello Gentile <federicotg@gmail.com>
+ */
+public class FileScheduler {
+
+    private final List<Algorithm> algorithms;
+    private final boolean alternative;
+    private final List<String> crcSpecs;
+    private final Map<Pair<Path, Algorithm>, byte[]> resultHolder;
+    private final Executor executor;
+    private final int filesInFlight;
+    private final Semaphore permits;
+    private final int ringCapacity;
+    private final Map<Path, Long> fileSizes;
+    private final int smallFileThreshold;
+    private final int readSize;
+    private final boolean blocked;
+    private final RangeHasher rangeHasher;
+    private final long splitThreshold;
+    private final boolean combinable;
+    private final PipelineMetrics metrics;
+    private final Progress progress;
+    private final HashJob job;
+    private FileResultHandler resultHandler;
+
+    /**
+     * @param algorithms algorithms to compute for every file.
+     * @param alternative use alternative implementations.
+     * @param crcSpecs one spec for each CRC_GENERIC algorithm.
+     * @param resultHolder where the HashingTasks leave their results.
+     * @param executor runs the HashingTasks. They never wait for blocks so
+     * a thread per core is enough.
+     * @param filesInFlight how many files can be read and hashed at once.
+     * @param ringCapacity maximum number of blocks buffered for each file.
+     * @param fileSizes known file sizes, -1 for files that can't be read.
+     * @param smallFileThreshold files smaller than this are hashed by the
+     * reader itself.
+     * @param readSize bytes read at once, 0 to choose by file size.
+     * @param blocked hash every algorithm of a file in a single HashingTask.
+     * @param rangeHasher hashes big files in ranges.
+     * @param splitThreshold files at least this big are hashed in ranges, 0
+     * to never split them.
+     * @param metrics where readers and HashingTasks count what they do, null
+     * for nowhere.
+     * @param progress where readers and HashingTasks report how far they got.
+     * @param job tells readers and HashingTasks to stop and collects the files
+     * that failed.
+     */
+    public FileScheduler(
+            List<Algorithm> algorithms,
+            boolean alternative,
+            List<String> crcSpecs,
+            Map<Pair<Path, Algorithm>, byte[]> resultHolder,
+            Executor executor,
+            int filesInFlight,
+            int ringCapacity,
+            Map<Path, Long> fileSizes,
+            int smallFileThreshold,
+            int readSize,
+            boolean blocked,
+            RangeHasher rangeHasher,
+            long splitThreshold,
+            PipelineMetrics metrics,
+            Progress progress,
+            HashJob job) {
+        this.algorithms = algorithms;
+        this.alternative = alternative;
+        this.crcSpecs = crcSpecs;
+        this.resultHolder = resultHolder;
+        this.executor = executor;
+        this.filesInFlight = filesInFlight;
+        this.permits = new Semaphore(filesInFlight);
+        this.ringCapacity = ringCapacity;
+        this.fileSizes = fileSizes;
+        this.smallFileThreshold = smallFileThreshold;
+        this.readSize = readSize;
+        this.blocked = blocked;
+        this.rangeHasher = rangeHasher;
+        this.splitThreshold = splitThreshold;
+        this.combinable = splitThreshold > 0 && !algorithms.isEmpty() && this.isCombinable();
+        this.metrics = metrics;
+        this.progress = progress;
+        this.job = job;
+    }
+
+    public PipelineMetrics getMetrics() {
+        return metrics;
+    }
+
+    public Progress getProgress() {
+        return progress;
+    }
+
+    /**
+     * @param resultHandler takes the results of every file as soon as they are
+     * complete, they are not left in the result holder. Null to leave them
+     * there. Must be set before the first file starts.
+     */
+    public void setResultHandler(FileResultHandler resultHandler) {
+        this.resultHandler = resultHandler;
+    }
+
+    /**
+     * @return true once the job is cancelled, readers should stop reading.
+     */
+    public boolean isCancelled() {
+        return this.job.isCancelled();
+    }
+
+    /**
+     * Leaves a file out of the results.
+     *
+     * @param filename a file that could not be hashed.
+     * @param ex what went wrong.
+     */
+    public void failed(Path filename, Exception ex) {
+        if (!this.job.isCancelled()) {
+            this.job.failed(filename, ex);
+            this.progress.fileFailed(filename, ex);
+        }
+    }
+
+    /**
+     * Called once for every file when nothing else will happen to it, hashed
+     * or failed.
+     *
+     * @param filename the file
+     */
+    public void finished(Path filename) {
+        if (this.job.isCancelled()) {
+            return;
+        }
+        if (this.job.isFailed(filename)) {
+            this.handleFailure(filename);
+            return;
+        }
+        if (this.resultHandler != null) {
+            final List<byte[]> hashes = new ArrayList<>(this.algorithms.size());
+            for (Algorithm algorithm : this.algorithms) {
+                hashes.add(this.resultHolder.get(new Pair<>(filename, algorithm)));
+            }
+            for (Algorithm algorithm : this.algorithms) {
+                this.resultHolder.remove(new Pair<>(filename, algorithm));
+            }
+            try {
+                this.resultHandler.hashed(filename, hashes);
+            } catch (RuntimeException ex) {
+                // the file is done either way, the others go on.
+                Logger.getLogger(FileScheduler.class.getName()).throwing("FileScheduler", "finished", ex);
+                this.failed(filename, ex);
+                this.handleFailure(filename);
+                return;
+            }
+        }
+        this.progress.fileFinished(filename);
+    }
+
+    private void handleFailure(Path filename) {
+        if (this.resultHandler != null) {
+            try {
+                this.resultHandler.failed(filename, this.job.getFailures().get(filename));
+            } catch (RuntimeException ex) {
+                Logger.getLogger(FileScheduler.class.getName()).throwing("FileScheduler", "handleFailure", ex);
+            }
+        }
+    }
+
+    private boolean isCombinable() {
+        try {
+            return RangeHasher.isCombinable(this.newChecksums());
+        } catch (NoSuchAlgorithmException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * @param filename a file
+     * @return its size or -1 if it can't be read.
+     */
+    public long getSize(Path filename) {
+        final Long size = this.fileSizes.get(filename);
+        if (size != null) {
+            return size;
+        }
+        try {
+            return Files.size(filename);
+        } catch (IOException ex) {
+            return -1;
+        }
+    }
+
+    /**
+     * @param filename a file
+     * @return true if the file should be hashed by the reader itself.
+     */
+    public boolean isSmall(Path filename) {
+        final long size = this.getSize(filename);
+        return size >= 0 && size < this.smallFileThreshold;
+    }
+
+    /**
+     * @param filename a file
+     * @return true if the file should be hashed in ranges.
+     */
+    public boolean isSplit(Path filename) {
+        final long size = this.getSize(filename);
+        return this.combinable
+                && size >= this.splitThreshold
+                && this.rangeHasher.rangesFor(size) > 1;
+    }
+
+    /**
+     * @param filename a file
+     * @return how many bytes of it to read at once.
+     */
+    public int readSizeFor(Path filename) {
+        return ReadSize.forFile(this.getSize(filename), this.readSize);
+    }
+
+    private int ringCapacityFor(Path filename) {
+        // a file that can't be read gets only the last block.
+        final long size = Math.max(0, this.getSize(filename));
+        // the blocks of the file plus the last one.
+        return (int) Math.min(this.ringCapacity, size / this.readSizeFor(filename) + 2);
+    }
+
+    /**
+     * @return a new checksum for each algorithm, to be used by a single
+     * thread with hashInline.
+     * @throws NoSuchAlgorithmException if an algorithm is not available.
+     */
+    public List<AbstractChecksum> newChecksums() throws NoSuchAlgorithmException {
+        final List<AbstractChecksum> checksums = new ArrayList<>(this.algorithms.size());
+        int i = 0;
+        for (Algorithm algorithm : this.algorithms) {
+            if (algorithm.equals(Algorithm.CRC_GENERIC)) {
+                checksums.add(algorithm.getChecksumInstance(this.crcSpecs.get(i), this.alternative));
+                i++;
+            } else {
+                checksums.add(algorithm.getChecksumInstance(this.alternative));
+            }
+        }
+        return checksums;
+    }
+
+    /**
+     * Hashes a whole file on the calling thread with every algorithm.
+     *
+     * @param filename the file
+     * @param bytes its contents
+     * @param checksums from newChecksums, they are reset before use.
+     */
+    public void hashInline(Path filename, byte[] bytes, List<AbstractChecksum> checksums) {
+        for (int i = 0; i < checksums.size(); i++) {
+            final AbstractChecksum checksum = checksums.get(i);
+            checksum.reset();
+            if (this.metrics == null) {
+                checksum.update(bytes, 0, bytes.length);
+            } else {
+                final long start = System.nanoTime();
+                checksum.update(bytes, 0, bytes.length);
+                this.metrics.algorithm(checksum.getName()).busy(bytes.length, System.nanoTime() - start);
+            }
+            this.resultHolder.put(new Pair<>(filename, this.algorithms.get(i)), checksum.getByteArray());
+            this.progress.bytesHashed(filename, checksum.getName(), bytes.length);
+        }
+        this.finished(filename);
+    }
+
+    /**
+     * Hashes a whole file in ranges, the first one on the calling thread and
+     * the others on the executor.
+     *
+     * @param filename the file
+     * @throws NoSuchAlgorithmException if an algorithm is not available.
+     */
+    public void hashRanges(Path filename) throws NoSuchAlgorithmException {
+        final int ranges = this.rangeHasher.rangesFor(this.getSize(filename));
+        final List<List<AbstractChecksum>> checksums = new ArrayList<>(ranges);
+        for (int i = 0; i < ranges; i++) {
+            checksums.add(this.newChecksums());
+        }
+        final List<AbstractChecksum> answer;
+        final long hashed = this.getSize(filename);
+        try {
+            final long start = this.metrics == null ? 0 : System.nanoTime();
+            answer = this.rangeHasher.hash(filename, checksums, this.job::isCancelled);
+            if (this.metrics != null) {
+                // every algorithm of every range at once, counted as a whole.
+                this.metrics.algorithm(answer).busy(hashed, System.nanoTime() - start);
+            }
+            this.progress.read(hashed);
+        } catch (IOException ex) {
+            Logger.getLogger(FileScheduler.class.getName()).throwing("FileScheduler", "hashRanges", ex);
+            this.failed(filename, ex);
+            this.finished(filename);
+            return;
+        }
+        if (this.job.isCancelled()) {
+            return;
+        }
+        for (int i = 0; i < answer.size(); i++) {
+            this.resultHolder.put(new Pair<>(filename, this.algorithms.get(i)), answer.get(i).getByteArray());
+            this.progress.bytesHashed(filename, answer.get(i).getName(), hashed);
+        }
+        this.finished(filename);
+    }
+
+    // the spec of each CRC_GENERIC algorithm, null for the others.
+    private List<String> specs() {
+        final List<String> answer = new ArrayList<>(this.algorithms.size());
+        int i = 0;
+        for (Algorithm algorithm : this.algorithms) {
+            answer.add(algorithm.equals(Algorithm.CRC_GENERIC) ? this.crcSpecs.get(i++) : null);
+        }
+        return answer;
+    }
+
+    /**
+     * Waits until another file can be in flight and sets up a HashingTask for
+     * each algorithm on it, or a single one for all of them when blocked. The
+     * tasks run as blocks are published.
+     *
+     * @param filename the file about to be read.
+     * @return the ring buffer the file must be published to.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public RingBuffer<DataBlock> start(Path filename) throws InterruptedException {
+        this.permits.acquire();
+
+        final int consumers = this.blocked ? Math.min(1, this.algorithms.size()) : this.algorithms.size();
+        final RingBuffer<DataBlock> ring = new RingBuffer<>(this.ringCapacityFor(filename), consumers);
+
+        if (this.algorithms.isEmpty()) {
+            this.finished(filename);
+            this.permits.release();
+        }
+
+        // the last HashingTask of the file to finish lets another file in.
+        final AtomicInteger pending = new AtomicInteger(consumers);
+        final Runnable whenDone = () -> {
+            if (pending.decrementAndGet() == 0) {
+                try {
+                    this.finished(filename);
+                } finally {
+                    this.permits.release();
+                }
+            }
+        };
+        final List<HashingTask> tasks = new ArrayList<>(consumers);
+        if (this.blocked) {
+            if (consumers > 0) {
+                tasks.add(new HashingTask(filename, this.algorithms, this.alternative, this.specs(), ring, 0, this.resultHolder, this.executor, whenDone));
+            }
+        } else {
+            int i = 0;
+            int consumer = 0;
+            for (Algorithm algorithm : this.algorithms) {
+                if (algorithm.equals(Algorithm.CRC_GENERIC)) {
+                    tasks.add(new HashingTask(filename, algorithm, this.alternative, this.crcSpecs.get(i), ring, consumer, this.resultHolder, this.executor, whenDone));
+                    i++;
+                } else {
+                    tasks.add(new HashingTask(filename, algorithm, ring, consumer, this.resultHolder, this.executor, whenDone));
+                }
+                consumer++;
+            }
+        }
+        for (HashingTask task : tasks) {
+            task.setMetrics(this.metrics);
+            task.setProgress(this.progress);
+            task.setJob(this.job);
+        }
+        // the tasks run when the reader publishes something for them.
+        ring.setPublished(() -> {
+            for (HashingTask task : tasks) {
+                task.wake();
+            }
+        });
+        return ring;
+    }
+
+    /**
+     * Waits until every started file has been hashed.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void awaitIdle() throws InterruptedException {
+        this.permits.acquire(this.filesInFlight);
+        this.permits.release(this.filesInFlight);
+    }
+
+    public int getFilesInFlight() {
+        return filesInFlight;
+    }
+}
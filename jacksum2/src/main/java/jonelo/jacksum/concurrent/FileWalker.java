@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2015 Federico Tello Gentile <federicotg@gmail.com>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package jonelo.jacksum.concurrent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * Finds the regular files under a list of paths. Every directory is listed by
+ * its own fork join task and the attributes of every entry are read once, so
+ * the size and modification time come with the entry instead of costing more
+ * calls.
+ *
+ * Files come out in the same order a sequential depth first walk would
+ * produce.
+ *
+ * @author Federico Tello Gentile <federicotg@gmail.com>
+ */
+public class FileWalker {
+
+    // listing directories mostly waits on the file system, more so over the network.
+    private static final int PARALLELISM = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+    private static final LinkOption[] FOLLOW = new LinkOption[0];
+    private static final LinkOption[] NO_FOLLOW = new LinkOption[]{LinkOption.NOFOLLOW_LINKS};
+
+    private final int maxDepth;
+    private final boolean followLinks;
+
+    /**
+     * @param maxDepth how deep to go, 1 only lists the given directories.
+     * @param followLinks descend into symbolic links to directories.
+     */
+    public FileWalker(int maxDepth, boolean followLinks) {
+        this.maxDepth = maxDepth;
+        this.followLinks = followLinks;
+    }
+
+    private LinkOption[] linkOptions() {
+        return this.followLinks ? FOLLOW : NO_FOLLOW;
+    }
+
+    /**
+     * @param entry a path found while walking
+     * @return its attributes or null if it is not a regular file or a
+     * directory worth listing.
+     */
+    private BasicFileAttributes attributes(Path entry) {
+        try {
+            final BasicFileAttributes attrs = Files.readAttributes(entry, BasicFileAttributes.class, this.linkOptions());
+            if (attrs.isSymbolicLink()) {
+                // links to files count as files even when links are not followed.
+                final BasicFileAttributes target = Files.readAttributes(entry, BasicFileAttributes.class);
+                return target.isRegularFile() ? target : null;
+            }
+            return attrs;
+        } catch (IOException ex) {
+            // can't tell what it is, so it is not a regular file.
+            return null;
+        }
+    }
+
+    /**
+     * @param starts files and directories to walk.
+     * @return every regular file found with its attributes.
+     * @throws IOException if a start or a directory can't be read.
+     */
+    public List<Pair<Path, BasicFileAttributes>> walk(List<Path> starts) throws IOException {
+        return this.walk(starts, file -> {
+        });
+    }
+
+    /**
+     * Walks the paths telling about every regular file as soon as it is found,
+     * from whatever thread found it.
+     *
+     * @param starts files and directories to walk.
+     * @param found called for every regular file, in no particular order. It
+     * must be thread safe.
+     * @return every regular file found with its attributes, in walk order.
+     * @throws IOException if a start or a directory can't be read.
+     */
+    public List<Pair<Path, BasicFileAttributes>> walk(
+            List<Path> starts,
+            Consumer<Pair<Path, BasicFileAttributes>> found) throws IOException {
+        return this.walk(starts, found, true);
+    }
+
+    /**
+     * Same as walk without keeping the files found, so memory does not grow
+     * with the size of the tree.
+     *
+     * @param starts files and directories to walk.
+     * @param found called for every regular file, in no particular order. It
+     * must be thread safe.
+     * @throws IOException if a start or a directory can't be read.
+     */
+    public void visit(
+            List<Path> starts,
+            Consumer<Pair<Path, BasicFileAttributes>> found) throws IOException {
+        this.walk(starts, found, false);
+    }
+
+    private List<Pair<Path, BasicFileAttributes>> walk(
+            List<Path> starts,
+            Consumer<Pair<Path, BasicFileAttributes>> found,
+            boolean collect) throws IOException {
+        final ForkJoinPool pool = new ForkJoinPool(PARALLELISM);
+        try {
+            final List<Pair<Path, BasicFileAttributes>> answer = new ArrayList<>();
+            final List<WalkTask> tasks = new ArrayList<>(starts.size());
+            for (Path start : starts) {
+                BasicFileAttributes attrs = Files.readAttributes(start, BasicFileAttributes.class, this.linkOptions());
+                if (attrs.isSymbolicLink()) {
+                    final BasicFileAttributes target = this.attributes(start);
+                    attrs = target != null ? target : attrs;
+                }
+                final WalkTask task = new WalkTask(start, attrs, 0, Collections.emptyList(), found, collect);
+                pool.execute(task);
+                tasks.add(task);
+            }
+            for (WalkTask task : tasks) {
+                answer.addAll(task.join());
+            }
+            return answer;
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private class WalkTask extends RecursiveTask<List<Pair<Path, BasicFileAttributes>>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Path path;
+        private final BasicFileAttributes attrs;
+        private final int depth;
+        // keys of the directories above, to stop on link loops.
+        private final List<Object> ancestors;
+        private final Consumer<Pair<Path, BasicFileAttributes>> found;
+        // false to only tell found about the files.
+        private final boolean collect;
+
+        WalkTask(Path path, BasicFileAttributes attrs, int depth, List<Object> ancestors, Consumer<Pair<Path, BasicFileAttributes>> found, boolean collect) {
+            this.path = path;
+            this.attrs = attrs;
+            this.depth = depth;
+            this.ancestors = ancestors;
+            this.found = found;
+            this.collect = collect;
+        }
+
+        private Pair<Path, BasicFileAttributes> found(Path file, BasicFileAttributes fileAttrs) {
+            final Pair<Path, BasicFileAttributes> answer = new Pair<>(file, fileAttrs);
+            this.found.accept(answer);
+            return answer;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected List<Pair<Path, BasicFileAttributes>> compute() {
+            if (!this.attrs.isDirectory()) {
+                if (!this.attrs.isRegularFile()) {
+                    return Collections.emptyList();
+                }
+                final Pair<Path, BasicFileAttributes> file = this.found(this.path, this.attrs);
+                return this.collect ? Collections.singletonList(file) : Collections.emptyList();
+            }
+
+            final List<Object> keys = new ArrayList<>(this.ancestors);
+            keys.add(this.attrs.fileKey());
+
+            // files as they come, subdirectories as forked tasks joined in place.
+            final List<Object> parts = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.path)) {
+                for (Path entry : stream) {
+                    final BasicFileAttributes entryAttrs = attributes(entry);
+                    if (entryAttrs == null) {
+                        continue;
+                    }
+                    if (entryAttrs.isDirectory()) {
+                        final Object key = entryAttrs.fileKey();
+                        if (this.depth + 1 < maxDepth && (key == null || !keys.contains(key))) {
+                            parts.add(new WalkTask(entry, entryAttrs, this.depth + 1, keys, this.found, this.collect).fork());
+                        }
+                    } else if (entryAttrs.isRegularFile()) {
+                        final Pair<Path, BasicFileAttributes> file = this.found(entry, entryAttrs);
+                        if (this.collect) {
+                            parts.add(file);
+                        }
+                    }
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+
+            final List<Pair<Path, BasicFileAttributes>> answer = new ArrayList<>(parts.size());
+            for (Object part : parts) {
+                if (part instanceof WalkTask) {
+                    answer.addAll(((WalkTask) part).join());
+                } else {
+                    answer.add((Pair<Path, BasicFileAttributes>) part);
+                }
+            }
+            return answer;
+        }
+    }
+}
@@ -18,9 +18,15 @@
 
 package jonelo.jacksum.concurrent;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
 import jonelo.jacksum.algorithm.AbstractChecksum;
+import jonelo.jacksum.algorithm.Algorithm;
 
 /**
  *
@@ -30,11 +36,15 @@ public class HashAlgorithm implements Comparable<HashAlgorithm> {
 
     private static final Map<String, Integer> WEIGHTS = new HashMap<>();
 
+    // measured on this machine, they take precedence over the table.
+    private static final Map<String, Integer> MEASURED = new ConcurrentHashMap<>();
+
     /* 
      * This weight information is used to balance the load among
      * different worker threads.
      * To regenerate this information use the main method
-     * in this class.
+     * in this class. WeightProfile measures them on the
+     * machine at hand instead, see Jacksum2Cli --calibrate.
 
 Benchmark                              Mode  Samples      Score  Score error  Units
 o.f.j.t.MyBenchmark.adler32File        avgt       20    101,994        2,882  ms/op
@@ -178,18 +188,73 @@ o.f.j.t.MyBenchmark.xor8File           avgt       20     66,255        0,770  ms
         WEIGHTS.put("whirlpool1", 1649);
         WEIGHTS.put("whirlpool2", 1660);
         WEIGHTS.put("xor8", 66);
+
+        // names above are aliases, lookups may come with the canonical name.
+        for (Map.Entry<String, Integer> weight : new HashMap<>(WEIGHTS).entrySet()) {
+            WEIGHTS.putIfAbsent(canonical(weight.getKey()), weight.getValue());
+        }
+    }
+
+    /**
+     * Uses the weights measured by --calibrate, if there are any. Nothing is
+     * loaded unless this is called, so embedders get the table.
+     *
+     * @return true if the profile was there and could be read.
+     */
+    public static boolean loadProfile() {
+        final Path profile = WeightProfile.getDefaultFile();
+        if (!Files.isRegularFile(profile)) {
+            return false;
+        }
+        try {
+            useWeights(WeightProfile.load(profile));
+            return true;
+        } catch (IOException ex) {
+            Logger.getLogger(HashAlgorithm.class.getName()).throwing("HashAlgorithm", "loadProfile", ex);
+            return false;
+        }
+    }
+
+    /**
+     * Replaces the measured weights, the table is used for anything missing.
+     *
+     * @param weights weights by canonical name, from WeightProfile.
+     */
+    public static void useWeights(Map<String, Integer> weights) {
+        MEASURED.clear();
+        MEASURED.putAll(weights);
+    }
+
+    private static String canonical(String name) {
+        final Algorithm algorithm = Algorithm.getAlgorithm(name);
+        return algorithm != null ? algorithm.getCanonicalName() : name;
+    }
+
+    /**
+     * @param name an algorithm name or alias
+     * @return its weight in the table or null if it is not there.
+     */
+    static Integer getTableWeight(String name) {
+        final Integer weight = WEIGHTS.get(name);
+        return weight != null ? weight : WEIGHTS.get(canonical(name));
     }
 
     public static int getWeight(String name) {
-        return WEIGHTS.getOrDefault(name, 1);
+        final Integer measured = MEASURED.get(canonical(name));
+        if (measured != null) {
+            return measured;
+        }
+        final Integer weight = getTableWeight(name);
+        return weight != null ? weight : 1;
     }
 
     public static int getMaxWeight() {
         int max = 0;
-        for (int w : WEIGHTS.values()) {
-            if (w > max) {
-                max = w;
-            }
+        for (String name : WEIGHTS.keySet()) {
+            max = Math.max(max, getWeight(name));
+        }
+        for (int w : MEASURED.values()) {
+            max = Math.max(max, w);
         }
         return max;
     }
@@ -211,7 +276,7 @@ o.f.j.t.MyBenchmark.xor8File           avgt       20     66,255        0,770  ms
          * weights every time a new hash function in added or when a new
          * implementation is used.
          */
-        this.weight = WEIGHTS.getOrDefault(name, 1);
+        this.weight = getWeight(name);
         this.cs = cs;
     }
 
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2015 Federico Tello Gentile <federicotg@gmail.com>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package jonelo.jacksum.concurrent;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import jonelo.jacksum.algorithm.Algorithm;
+
+/**
+ * A run of ConcurrentHasher.hashFiles that can be cancelled, by hand or when
+ * its deadline passes. Cancelling stops the readers after the block they are
+ * reading, the HashingTasks drop whatever is still buffered and the thread
+ * running the job is interrupted so it does not wait for any of them. Files
+ * that could not be read are not in the results, they are in the failures.
+ *
+ * @author Federico Tello Gentile <federicotg@gmail.com>
+ */
+public class HashJob implements Future<Map<Pair<Path, Algorithm>, byte[]>> {
+
+    private static final ScheduledExecutorService DEADLINES = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "jacksum deadlines");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final CountDownLatch done = new CountDownLatch(1);
+    private final Map<Path, Exception> failures = new ConcurrentHashMap<>();
+    private final List<Runnable> cancelHooks = new CopyOnWriteArrayList<>();
+    private volatile boolean cancelled = false;
+    private Thread runner;
+    private ScheduledFuture<?> deadline;
+    private Map<Pair<Path, Algorithm>, byte[]> result;
+    private Throwable error;
+
+    /**
+     * Cancels the job if it is still running after the given time.
+     *
+     * @param timeout how long the job may run.
+     * @param unit the timeout unit.
+     */
+    public synchronized void setDeadline(long timeout, TimeUnit unit) {
+        if (this.deadline != null) {
+            this.deadline.cancel(false);
+        }
+        this.deadline = DEADLINES.schedule(() -> this.cancel(true), timeout, unit);
+    }
+
+    /**
+     * @return every file that could not be hashed with what went wrong. Files
+     * that were in flight when the job was cancelled are not there.
+     */
+    public Map<Path, Exception> getFailures() {
+        return Collections.unmodifiableMap(this.failures);
+    }
+
+    void failed(Path file, Exception ex) {
+        if (!this.cancelled) {
+            this.failures.putIfAbsent(file, ex);
+        }
+    }
+
+    boolean isFailed(Path file) {
+        return this.failures.containsKey(file);
+    }
+
+    /**
+     * @param hook called once when the job is cancelled, right away if it
+     * already was. It may be called from any thread.
+     */
+    void whenCancelled(Runnable hook) {
+        this.cancelHooks.add(hook);
+        if (this.cancelled && this.cancelHooks.remove(hook)) {
+            hook.run();
+        }
+    }
+
+    /**
+     * Runs the job on the calling thread, which is interrupted if the job is
+     * cancelled meanwhile.
+     *
+     * @param pipeline hashes every file.
+     */
+    void run(Callable<Map<Pair<Path, Algorithm>, byte[]>> pipeline) {
+        synchronized (this) {
+            if (this.cancelled) {
+                return;
+            }
+            this.runner = Thread.currentThread();
+        }
+        Map<Pair<Path, Algorithm>, byte[]> answer = null;
+        Throwable failure = null;
+        try {
+            answer = pipeline.call();
+        } catch (Throwable ex) {
+            failure = ex;
+        } finally {
+            synchronized (this) {
+                this.runner = null;
+                if (this.cancelled) {
+                    // the interrupt came from cancel, not from the caller.
+                    Thread.interrupted();
+                } else {
+                    this.result = answer;
+                    this.error = failure;
+                }
+                if (this.deadline != null) {
+                    this.deadline.cancel(false);
+                }
+                this.done.countDown();
+            }
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        synchronized (this) {
+            if (this.cancelled || this.done.getCount() == 0) {
+                return false;
+            }
+            this.cancelled = true;
+            if (mayInterruptIfRunning && this.runner != null) {
+                this.runner.interrupt();
+            }
+            this.done.countDown();
+        }
+        for (Runnable hook : this.cancelHooks) {
+            if (this.cancelHooks.remove(hook)) {
+                hook.run();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return this.cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+        return this.done.getCount() == 0;
+    }
+
+    private synchronized Map<Pair<Path, Algorithm>, byte[]> report() throws ExecutionException {
+        if (this.cancelled) {
+            throw new CancellationException("The job was cancelled.");
+        }
+        if (this.error != null) {
+            throw new ExecutionException(this.error);
+        }
+        return this.result;
+    }
+
+    @Override
+    public Map<Pair<Path, Algorithm>, byte[]> get() throws InterruptedException, ExecutionException {
+        this.done.await();
+        return this.report();
+    }
+
+    @Override
+    public Map<Pair<Path, Algorithm>, byte[]> get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!this.done.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return this.report();
+    }
+}
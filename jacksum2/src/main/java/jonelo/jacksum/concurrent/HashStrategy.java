@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2015 Federico Tello Gentile <federicotg@gmail.com>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package jonelo.jacksum.concurrent;
+
+/**
+ * How the algorithms of a file are spread over threads.
+ *
+ * @author Federico Tello Gentile <federicotg@gmail.com>
+ */
+public enum HashStrategy {
+
+    /**
+     * Each algorithm on its own thread, every thread reading the same block.
+     */
+    SPREAD {
+                @Override
+                public boolean isBlocked(int weight) {
+                    return false;
+                }
+            },
+    /**
+     * Every algorithm of a file on one thread, a cache block at a time, so
+     * the block is still in the cache for the next algorithm. Files are
+     * hashed in parallel instead.
+     */
+    BLOCKED {
+                @Override
+                public boolean isBlocked(int weight) {
+                    return true;
+                }
+            },
+    /**
+     * BLOCKED for cheap algorithms, where bringing the data into several
+     * caches costs as much as the hashing, SPREAD otherwise.
+     */
+    AUTO {
+                @Override
+                public boolean isBlocked(int weight) {
+                    return weight <= CHEAP_WEIGHT;
+                }
+            };
+
+    /**
+     * Algorithms adding up to this HashAlgorithm weight are cheap, about
+     * crc32, adler32 and md5 together twice over.
+     */
+    public static final int CHEAP_WEIGHT = 1000;
+
+    /**
+     * Bytes every algorithm gets before moving on to the next block, well
+     * within any L2 cache.
+     */
+    public static final int CACHE_BLOCK = 32 * 1024;
+
+    /**
+     * @param weight the combined HashAlgorithm weight of the algorithms.
+     * @return true if every algorithm of a file should run on the same thread.
+     */
+    public abstract boolean isBlocked(int weight);
+}
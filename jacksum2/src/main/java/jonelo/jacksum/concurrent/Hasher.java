@@ -18,26 +18,31 @@
 
 package jonelo.jacksum.concurrent;
 
+import java.nio.file.Path;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
 import java.util.logging.Logger;
 import jonelo.jacksum.algorithm.AbstractChecksum;
 
 /**
  * Updates a set of AbstractChecksums.
- * Reads the data from a queue.
+ * Reads the data from a ring buffer shared with the other Hashers.
  * @author Federico Tello Gentile <federicotg@gmail.com>
  */
 public class Hasher implements Runnable {
 
     private final List<AbstractChecksum> digests;
-    private final BlockingQueue<DataUnit> queue;
+    private final RingBuffer<DataUnit> ring;
+    private final int consumer;
     private int weight = 0;
+    private PipelineMetrics metrics;
+    private Path file;
+    private Progress progress;
 
-    public Hasher(BlockingQueue<DataUnit> queue) {
-        this.queue = queue;
+    public Hasher(RingBuffer<DataUnit> ring, int consumer) {
+        this.ring = ring;
+        this.consumer = consumer;
         this.digests = new ArrayList<>();
     }
 
@@ -45,6 +50,29 @@ public class Hasher implements Runnable {
         return weight;
     }
 
+    /**
+     * @param metrics where to count hashing and waiting time, null for
+     * nowhere. Must be set after every digest was added.
+     */
+    public void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param file the file being hashed.
+     * @param progress where to report hashed bytes, null for nowhere.
+     */
+    public void setProgress(Path file, Progress progress) {
+        this.file = file;
+        this.progress = progress != null && progress.isListening() ? progress : null;
+    }
+
+    private void report(long hashed) {
+        for (AbstractChecksum digest : this.digests) {
+            this.progress.bytesHashed(this.file, digest.getName(), hashed);
+        }
+    }
+
     public void addMessageDigest(HashAlgorithm hash) throws NoSuchAlgorithmException {
         this.weight += hash.getWeight();
         this.digests.add(hash.getChecksum());
@@ -52,14 +80,31 @@ public class Hasher implements Runnable {
 
     @Override
     public void run() {
+        final PipelineMetrics.Stage stage = this.metrics == null ? null : this.metrics.algorithm(this.digests);
+        long hashed = 0;
+        long reported = 0;
         try {
-            DataUnit du;
+            boolean last;
             do {
-                du = this.queue.take();
-                for (AbstractChecksum md : this.digests) {
-                    du.updateMessageDigest(md);
+                final long waiting = stage == null ? 0 : System.nanoTime();
+                final DataUnit du = this.ring.take(this.consumer);
+                final long hashing = stage == null ? 0 : System.nanoTime();
+                du.updateMessageDigests(this.digests, HashStrategy.CACHE_BLOCK);
+                if (stage != null) {
+                    stage.waited(hashing - waiting);
+                    stage.busy(du.getLength(), System.nanoTime() - hashing);
+                }
+                // the unit may be reused as soon as it is released.
+                last = !du.isNotLast();
+                if (this.progress != null) {
+                    hashed += du.getLength();
+                    if (last || hashed - reported >= Progress.REPORT_BYTES) {
+                        this.report(hashed);
+                        reported = hashed;
+                    }
                 }
-            } while (du.isNotLast());
+                du.release();
+            } while (!last);
         } catch (InterruptedException iEx) {
            Logger.getLogger(ConcurrentHasher.class.getName()).throwing("Hasher", "run", iEx);
         }
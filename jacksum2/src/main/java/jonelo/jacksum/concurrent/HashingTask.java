@@ -19,82 +19,280 @@ package jonelo.jacksum.concurrent;
 
 import java.nio.file.Path;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 import jonelo.jacksum.algorithm.AbstractChecksum;
 import jonelo.jacksum.algorithm.Algorithm;
 
 /**
+ * Hashes a file with one algorithm, or several one cache block at a time, as
+ * its blocks show up in the ring buffer.
+ *
+ * It never waits for a block. The reader wakes it up on every block it
+ * publishes, it runs on the executor while there are blocks and gives the
+ * thread back as soon as there are none, so a few threads can hash any number
+ * of files.
  *
  * @author Federico Tello Gentile <federicotg@gmail.com>
  */
 public class HashingTask implements Runnable {
 
+    // blocks hashed before letting the tasks of other files run.
+    private static final int BLOCKS_PER_TURN = 16;
+
     private final Path filename;
-    private final Algorithm algorithm;
+    private final List<Algorithm> algorithms;
+    // the spec of each CRC_GENERIC algorithm, null for the others.
+    private final List<String> crcSpecs;
     private final Map<Pair<Path, Algorithm>, byte[]> resultHolder;
-    private final BlockingQueue<DataBlock> dataBlockSource;
-    private AbstractChecksum checksum;
-    private String crcSpec;
-    private boolean alternate;
+    private final RingBuffer<DataBlock> dataBlockSource;
+    private final int consumer;
+    private final Executor executor;
+    private final Runnable whenDone;
+    // true while the task is running or waiting in the executor.
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private List<AbstractChecksum> checksums;
+    private boolean failed = false;
+    private final boolean alternate;
+    private PipelineMetrics metrics;
+    private PipelineMetrics.Stage stage;
+    // when it last went to the executor.
+    private volatile long queued;
+    private Progress progress;
+    private HashJob job;
+    // bytes of the file hashed and how many of them were reported.
+    private long hashed;
+    private long reported;
 
+    /**
+     * @param filename the file
+     * @param algorithms the algorithms to compute
+     * @param alternate use the alternative implementations
+     * @param crcSpecs for each algorithm, its spec if it is CRC_GENERIC or
+     * null.
+     * @param dataBlockSource where the blocks of the file are published
+     * @param consumer the index of this task in the ring
+     * @param resultHolder where the results are left
+     * @param executor runs the task when it has blocks
+     * @param whenDone called once the results are there, or the task failed.
+     */
     public HashingTask(
             Path filename,
-            Algorithm algorithm,
+            List<Algorithm> algorithms,
             boolean alternate,
-            String crcSpec,
-            BlockingQueue<DataBlock> dataBlockSource,
-            Map<Pair<Path, Algorithm>, byte[]> resultHolder) {
+            List<String> crcSpecs,
+            RingBuffer<DataBlock> dataBlockSource,
+            int consumer,
+            Map<Pair<Path, Algorithm>, byte[]> resultHolder,
+            Executor executor,
+            Runnable whenDone) {
         this.filename = filename;
-        this.algorithm = algorithm;
+        this.algorithms = algorithms;
         this.resultHolder = resultHolder;
         this.dataBlockSource = dataBlockSource;
-        this.crcSpec = crcSpec;
+        this.consumer = consumer;
+        this.crcSpecs = crcSpecs;
         this.alternate = alternate;
+        this.executor = executor;
+        this.whenDone = whenDone;
     }
 
     public HashingTask(
             Path filename,
             Algorithm algorithm,
-            BlockingQueue<DataBlock> dataBlockSource,
-            Map<Pair<Path, Algorithm>, byte[]> resultHolder) {
-        this.filename = filename;
-        this.algorithm = algorithm;
-        this.resultHolder = resultHolder;
-        this.dataBlockSource = dataBlockSource;
+            boolean alternate,
+            String crcSpec,
+            RingBuffer<DataBlock> dataBlockSource,
+            int consumer,
+            Map<Pair<Path, Algorithm>, byte[]> resultHolder,
+            Executor executor,
+            Runnable whenDone) {
+        this(filename,
+                Collections.singletonList(algorithm),
+                alternate,
+                Collections.singletonList(crcSpec),
+                dataBlockSource,
+                consumer,
+                resultHolder,
+                executor,
+                whenDone);
     }
 
-    @Override
-    public void run() {
+    public HashingTask(
+            Path filename,
+            Algorithm algorithm,
+            RingBuffer<DataBlock> dataBlockSource,
+            int consumer,
+            Map<Pair<Path, Algorithm>, byte[]> resultHolder,
+            Executor executor,
+            Runnable whenDone) {
+        this(filename, algorithm, false, null, dataBlockSource, consumer, resultHolder, executor, whenDone);
+    }
 
-        //log("HashingTask starts. "+this.filename+" "+this.algorithm.getCanonicalName());
-        try {
-            this.checksum = crcSpec == null
-                    ? this.algorithm.getChecksumInstance(this.alternate)
-                    : this.algorithm.getChecksumInstance(this.crcSpec, this.alternate);
-            //JacksumAPI.getChecksumInstance(this.algorithm.getCanonicalName());
-            //DataBlock data = this.dataBlockSource.take();
-            DataBlock data = this.dataBlockSource.poll(1, TimeUnit.MINUTES);
-            while (data != null && data.isNotLast()) {
-                //   log("processing one block "+this.filename+" "+this.algorithm.getCanonicalName());
-                data.updateChecksum(this.checksum);
-                //data = this.dataBlockSource.take();
-                data = this.dataBlockSource.poll(1, TimeUnit.MINUTES);
-            }
+    /**
+     * @param metrics where to count hashing time and the time spent waiting
+     * for a thread, null for nowhere. Must be set before the first wake.
+     */
+    public void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param progress where to report hashed bytes, null for nowhere. Must be
+     * set before the first wake.
+     */
+    public void setProgress(Progress progress) {
+        this.progress = progress != null && progress.isListening() ? progress : null;
+    }
+
+    /**
+     * @param job stops the task from hashing when cancelled and is told if
+     * the task fails, null for none.
+     */
+    public void setJob(HashJob job) {
+        this.job = job;
+    }
+
+    private boolean isCancelled() {
+        return this.job != null && this.job.isCancelled();
+    }
+
+    private void report() {
+        this.reported = this.hashed;
+        for (AbstractChecksum checksum : this.checksums) {
+            this.progress.bytesHashed(this.filename, checksum.getName(), this.hashed);
+        }
+    }
 
-            // log("Saving one result " +this.filename+" "+this.algorithm.getCanonicalName());
-            this.resultHolder.put(new Pair<>(this.filename, this.algorithm), this.checksum.getByteArray());
+    private void execute() {
+        if (this.metrics != null) {
+            this.queued = System.nanoTime();
+        }
+        this.executor.execute(this);
+    }
 
-        } catch (InterruptedException | NoSuchAlgorithmException iEx) {
-            Logger.getLogger(HashingTask.class.getName()).throwing("HashingTask", "run", iEx);
+    /**
+     * Runs the task on the executor unless it is already running or waiting
+     * to run.
+     */
+    public void wake() {
+        if (!this.scheduled.get() && this.scheduled.compareAndSet(false, true)) {
+            this.execute();
+        }
+    }
+
+    private List<AbstractChecksum> newChecksums() throws NoSuchAlgorithmException {
+        final List<AbstractChecksum> answer = new ArrayList<>(this.algorithms.size());
+        for (int i = 0; i < this.algorithms.size(); i++) {
+            final String crcSpec = this.crcSpecs.get(i);
+            answer.add(crcSpec == null
+                    ? this.algorithms.get(i).getChecksumInstance(this.alternate)
+                    : this.algorithms.get(i).getChecksumInstance(crcSpec, this.alternate));
+        }
+        return answer;
+    }
+
+    private void hash(DataBlock data) {
+        if (this.failed || this.isCancelled()) {
+            // the blocks are still taken and released, just not hashed.
+            return;
+        }
+        try {
+            if (this.checksums == null) {
+                this.checksums = this.newChecksums();
+                if (this.metrics != null) {
+                    this.stage = this.metrics.algorithm(this.checksums);
+                }
+            }
+            final long start = this.stage == null ? 0 : System.nanoTime();
+            if (this.checksums.size() == 1) {
+                data.updateChecksum(this.checksums.get(0));
+            } else {
+                data.updateChecksums(this.checksums, HashStrategy.CACHE_BLOCK);
+            }
+            if (this.stage != null) {
+                this.stage.busy(data.getLength(), System.nanoTime() - start);
+            }
+        } catch (Throwable ex) {
+            // an error too, like the InternalError of a mapped file truncated
+            // meanwhile. The blocks are still taken so the reader is not held
+            // up and the file fails on its own.
+            Logger.getLogger(HashingTask.class.getName()).throwing("HashingTask", "hash", ex);
+            this.failed = true;
+            if (this.job != null) {
+                this.job.failed(this.filename, ex instanceof Exception ? (Exception) ex : new ExecutionException(ex));
+            }
+        }
+        if (this.progress != null && !this.failed) {
+            this.hashed += data.getLength();
+            if (this.hashed - this.reported >= Progress.REPORT_BYTES) {
+                this.report();
+            }
         }
-        // log("Hashing finished " +this.filename+" "+this.algorithm.getCanonicalName()+" "+I.incrementAndGet());
     }
 
-    private void log(String msg) {
-        System.out.println(msg);
+    private void finish() {
+        try {
+            // a file that failed to be read has no results either.
+            if (!this.failed && !this.isCancelled() && (this.job == null || !this.job.isFailed(this.filename))) {
+                if (this.checksums == null) {
+                    // an empty file.
+                    this.hash(new DataBlock(new byte[0], 0));
+                }
+                if (!this.failed && this.checksums != null) {
+                    for (int i = 0; i < this.algorithms.size(); i++) {
+                        this.resultHolder.put(new Pair<>(this.filename, this.algorithms.get(i)), this.checksums.get(i).getByteArray());
+                    }
+                    if (this.progress != null && this.hashed > this.reported) {
+                        this.report();
+                    }
+                }
+            }
+        } finally {
+            // scheduled stays set, there is nothing left to wake up for.
+            this.whenDone.run();
+        }
     }
 
+    @Override
+    public void run() {
+        if (this.stage != null) {
+            this.stage.waited(System.nanoTime() - this.queued);
+        }
+        int blocks = 0;
+        while (true) {
+            final DataBlock data = this.dataBlockSource.tryTake(this.consumer);
+            if (data == null) {
+                this.scheduled.set(false);
+                // a block published before the flag was cleared did not wake us.
+                if (!this.dataBlockSource.isAvailable(this.consumer) || !this.scheduled.compareAndSet(false, true)) {
+                    return;
+                }
+            } else if (!data.isNotLast()) {
+                this.finish();
+                return;
+            } else {
+                try {
+                    this.hash(data);
+                } finally {
+                    data.release();
+                }
+                if (++blocks >= BLOCKS_PER_TURN) {
+                    if (this.dataBlockSource.isAvailable(this.consumer)) {
+                        // still scheduled, back in line behind the other tasks.
+                        this.execute();
+                        return;
+                    }
+                    // nothing waiting yet, a new turn starts with the next block.
+                    blocks = 0;
+                }
+            }
+        }
+    }
 }
@@ -24,21 +24,31 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
-import java.nio.file.FileVisitOption;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import javax.management.JMException;
 import jonelo.jacksum.algorithm.Algorithm;
+import jonelo.jacksum.algorithm.ProviderSelection;
 import org.kohsuke.args4j.Argument;
 import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
@@ -55,6 +65,9 @@ public class Jacksum2Cli {
     private static final int ERROR_STATUS = 2;
     private static final int OK = 0;
 
+    // files found but not yet taken by a reader
+    private static final int FOUND_FILES_CAPACITY = 4096;
+
     public static void addCRCSpec(String spec) {
         GENERIC_CRC_SPECS.add(spec);
     }
@@ -156,6 +169,46 @@ public class Jacksum2Cli {
     @Option(name = "-X", forbids = {"-E", "-x"})
     private boolean upperHexaFormat = false;
 
+    @Option(name = "--read-mode", metaVar = "mode")
+    private ReadMode readMode = ReadMode.AUTO;
+
+    @Option(name = "--walk-first")
+    private boolean walkFirst = false;
+
+    @Option(name = "--readers", metaVar = "count")
+    private int readersPerDevice = 0;
+
+    @Option(name = "--order", metaVar = "order")
+    private FileOrder fileOrder = null;
+
+    @Option(name = "--read-size", metaVar = "KiB")
+    private int readSizeKiB = 0;
+
+    @Option(name = "--calibrate")
+    private boolean calibrate = false;
+
+    @Option(name = "--metrics")
+    private boolean metrics = false;
+
+    private final PipelineMetrics pipelineMetrics = new PipelineMetrics();
+
+    @Option(name = "--progress")
+    private boolean progress = false;
+
+    private ProgressLine progressLine;
+
+    @Option(name = "--timeout", metaVar = "seconds")
+    private int timeoutSeconds = 0;
+
+    @Option(name = "--stream")
+    private boolean stream = false;
+
+    @Option(name = "--stream-ordered", metaVar = "lines")
+    private int streamOrderedLines = 0;
+
+    // files that could not be hashed.
+    private Map<Path, Exception> failures = Collections.emptyMap();
+
     @Argument
     private List<String> filenames = new ArrayList<>();
 
@@ -186,6 +239,25 @@ public class Jacksum2Cli {
 
     }
 
+    private ConcurrentHasher newConcurrentHasher() {
+        final ConcurrentHasher hasher = new ConcurrentHasher();
+        hasher.setReadMode(this.readMode);
+        hasher.setReadersPerDevice(this.readersPerDevice);
+        hasher.setReadSize(this.getReadSize());
+        if (this.isMetrics()) {
+            hasher.setMetrics(this.pipelineMetrics);
+        }
+        hasher.setTimeout(this.getTimeout());
+        if (this.isProgress()) {
+            this.progressLine = new ProgressLine(this.err);
+            hasher.setProgressListener(this.progressLine);
+        }
+        if (this.fileOrder != null) {
+            hasher.setFileOrder(this.fileOrder);
+        }
+        return hasher;
+    }
+
     private void buildQuickReport(JacksumReport report, HashFormat simpleFormat) {
         final byte[] bytes = QuickSequenceType.decodeQuickSequence(this.quickSequence);
 
@@ -206,13 +278,12 @@ public class Jacksum2Cli {
         final List<Path> allFiles = new ArrayList<>();
         final Map<Path, Long> fileSizes = new ConcurrentHashMap<>();
         final Map<Path, Long> fileLastModified = new ConcurrentHashMap<>();
-        this.loadFilesToHash(allFiles, fileSizes, fileLastModified);
-        final Map<Pair<Path, Algorithm>, byte[]> results = new ConcurrentHasher().hashFiles(allFiles,
-                this.algorithms,
-                this.alternative,
-                GENERIC_CRC_SPECS);
+        final Map<Pair<Path, Algorithm>, byte[]> results = this.loadAndHashFiles(this.newConcurrentHasher(), allFiles, fileSizes, fileLastModified);
 
         for (Path fn : allFiles) {
+            if (this.failures.containsKey(fn)) {
+                continue;
+            }
             report.addLine(
                     fn.toString(),
                     simpleFormat.format(
@@ -233,6 +304,21 @@ public class Jacksum2Cli {
 
             this.initOutput();
 
+            if (this.isCalibrate()) {
+                this.calibrateWeights();
+                return OK;
+            }
+
+            // how the algorithms are spread over the threads.
+            HashAlgorithm.loadProfile();
+            // before the hashing, so it does not time the providers meanwhile.
+            this.selectProviders();
+
+            if (this.isMetrics()) {
+                // watch it with jconsole while it runs.
+                this.pipelineMetrics.register();
+            }
+
             if (this.isPrintMetainfo()) {
 
                 final HashFormat simpleFormat = new SimpleHashFormat(this.getEncoding(), this.getHexaGroupSize(), this.getHexaGroupSeparatorChar(), null);
@@ -257,10 +343,13 @@ public class Jacksum2Cli {
                 }
                 //process files
                 this.buildFilesReport(report, simpleFormat);
+                this.endProgress();
 
                 mapper.enable(SerializationFeature.INDENT_OUTPUT).writeValue(this.out, report);
 
-                return OK;
+                this.printMetrics();
+
+                return this.printFailures();
 
             }
 
@@ -269,11 +358,29 @@ public class Jacksum2Cli {
                 return OK;
             }
 
-            for (String resultString : this.getFormattedFileHashes()) {
+            if (this.getStreamOrderedLines() > 0) {
+                this.streamOrderedFileHashes();
+                this.endProgress();
+                this.printMetrics();
+                return this.printFailures();
+            }
+
+            if (this.isStream()) {
+                this.streamFileHashes();
+                this.endProgress();
+                this.printMetrics();
+                return this.printFailures();
+            }
+
+            final List<String> resultStrings = this.getFormattedFileHashes();
+            this.endProgress();
+            for (String resultString : resultStrings) {
                 this.out.println(resultString);
             }
 
-            return OK;
+            this.printMetrics();
+
+            return this.printFailures();
 
         } catch (Throwable ex) {
             this.printError(ex.getMessage());
@@ -281,6 +388,58 @@ public class Jacksum2Cli {
         }
     }
 
+    private int printFailures() {
+        for (Map.Entry<Path, Exception> failure : this.failures.entrySet()) {
+            this.printError(failure.getKey() + ": " + failure.getValue().getMessage());
+        }
+        return this.failures.isEmpty() ? OK : ERROR_STATUS;
+    }
+
+    private void endProgress() {
+        if (this.progressLine != null) {
+            this.progressLine.end();
+        }
+    }
+
+    private void printMetrics() throws JMException {
+        if (this.isMetrics()) {
+            // after the hashes, so they can still be piped somewhere.
+            this.err.print(this.pipelineMetrics.report());
+            this.err.flush();
+            this.pipelineMetrics.unregister();
+        }
+    }
+
+    private void calibrateWeights() throws IOException {
+        final Map<String, Integer> weights = WeightProfile.calibrate(Arrays.asList(Algorithm.values()), WeightProfile.DEFAULT_MILLIS);
+        final Path profile = WeightProfile.getDefaultFile();
+        WeightProfile.store(weights, profile);
+        HashAlgorithm.useWeights(weights);
+        for (Map.Entry<String, Integer> weight : weights.entrySet()) {
+            this.out.println(weight.getKey() + " " + weight.getValue());
+        }
+        this.out.println(profile);
+    }
+
+    private void selectProviders() {
+        if (this.alternative || !ProviderSelection.isEnabled()) {
+            return;
+        }
+        final Path profile = ProviderSelection.getDefaultFile();
+        try {
+            final Set<Algorithm> known = Files.isRegularFile(profile)
+                    ? ProviderSelection.load(profile)
+                    : Collections.emptySet();
+            if (!known.containsAll(this.algorithms)) {
+                ProviderSelection.probe(this.algorithms);
+                ProviderSelection.store(profile);
+            }
+        } catch (IOException ex) {
+            // measured again next time.
+            Logger.getLogger(Jacksum2Cli.class.getName()).throwing("Jacksum2Cli", "selectProviders", ex);
+        }
+    }
+
     public String getFormattedQuickHash() {
         final byte[] bytes = QuickSequenceType.decodeQuickSequence(this.quickSequence);
         final Map<Algorithm, byte[]> results = new ConcurrentHasher().hashBytes(
@@ -293,47 +452,181 @@ public class Jacksum2Cli {
                 this.algorithms.stream().map(algo -> results.get(algo)).collect(Collectors.toList()), bytes.length);
     }
 
+    // allFiles is null when the files are not kept, fileInodes when they are
+    // not needed.
     private void loadFilesToHash(List<Path> allFiles,
             Map<Path, Long> fileSizes,
-            Map<Path, Long> fileLastModified) throws IOException {
+            Map<Path, Long> fileLastModified,
+            Map<Path, Long> fileInodes,
+            PathChannel found) throws IOException {
 
         final int maxDepth = this.recursive ? Integer.MAX_VALUE : 1;
         final FileSystem fs = FileSystems.getDefault();
-        final FileVisitOption[] options = this.ignoreSymbolicLinksToDirectories
-                ? new FileVisitOption[0]
-                : new FileVisitOption[]{FileVisitOption.FOLLOW_LINKS};
-
-        for (String filename : this.filenames) {
-            Files.walk(fs.getPath(filename), maxDepth, options)
-                    .filter(path -> Files.isRegularFile(path))
-                    .forEach(path -> {
-                        allFiles.add(path);
-                        try {
-                            fileSizes.put(path, Files.size(path));
-                            fileLastModified.put(path, Files.getLastModifiedTime(path).toMillis());
-                        } catch (IOException ioEx) {
-                            fileSizes.put(path, -1l);
-                            fileLastModified.put(path, 0l);
-                        }
-                    });
+        final FileWalker walker = new FileWalker(maxDepth, !this.ignoreSymbolicLinksToDirectories);
+        final List<Path> starts = this.filenames.stream().map(filename -> fs.getPath(filename)).collect(Collectors.toList());
+
+        final Consumer<Pair<Path, BasicFileAttributes>> whenFound = file -> {
+            // sizes go first, the readers look them up.
+            fileSizes.put(file.getFirst(), file.getSecond().size());
+            fileLastModified.put(file.getFirst(), file.getSecond().lastModifiedTime().toMillis());
+            if (fileInodes != null) {
+                fileInodes.put(file.getFirst(), FileOrder.inode(file.getSecond()));
+            }
+            if (found != null) {
+                try {
+                    found.put(file.getFirst());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new UncheckedIOException(new InterruptedIOException(ex.getMessage()));
+                }
+            }
+        };
+
+        if (allFiles == null) {
+            walker.visit(starts, whenFound);
+            return;
+        }
+
+        for (Pair<Path, BasicFileAttributes> file : walker.walk(starts, whenFound)) {
+            allFiles.add(file.getFirst());
         }
 
     }
 
-    public List<String> getFormattedFileHashes() throws IOException, NoSuchAlgorithmException, InterruptedException, ExecutionException {
+    // allFiles is null when the files are not kept, then the hasher must have
+    // a result handler.
+    private Map<Pair<Path, Algorithm>, byte[]> loadAndHashFiles(
+            ConcurrentHasher hasher,
+            List<Path> allFiles,
+            Map<Path, Long> fileSizes,
+            Map<Path, Long> fileLastModified) throws IOException, NoSuchAlgorithmException, InterruptedException, ExecutionException {
+
+        // files can only be sorted once they are all found.
+        if (this.isWalkFirst()) {
+            final List<Path> walked = allFiles != null ? allFiles : new ArrayList<>();
+            // the walk already has them, no need to stat every file again.
+            final Map<Path, Long> fileInodes = this.fileOrder == FileOrder.INODE ? new ConcurrentHashMap<>() : null;
+            this.loadFilesToHash(walked, fileSizes, fileLastModified, fileInodes, null);
+            if (fileInodes != null) {
+                hasher.setInodes(fileInodes);
+            }
+            return this.results(hasher.submit(walked,
+                    fileSizes,
+                    this.algorithms,
+                    this.alternative,
+                    GENERIC_CRC_SPECS));
+        }
+
+        // files are hashed as soon as they are found.
+        final PathChannel found = new PathChannel(FOUND_FILES_CAPACITY);
+        final HashJob job = hasher.submit(found,
+                fileSizes,
+                this.algorithms,
+                this.alternative,
+                GENERIC_CRC_SPECS);
+        try {
+            this.loadFilesToHash(allFiles, fileSizes, fileLastModified, null, found);
+        } catch (CancellationException ex) {
+            // the job timed out or died while walking, get says so.
+        } finally {
+            found.close();
+        }
+        return this.results(job);
+    }
+
+    private Map<Pair<Path, Algorithm>, byte[]> results(HashJob job) throws InterruptedException, ExecutionException {
+        final Map<Pair<Path, Algorithm>, byte[]> results = job.get();
+        this.failures = job.getFailures();
+        return results;
+    }
+
+    /**
+     * Prints the line of every file as soon as it is hashed, in no particular
+     * order. Only the files in flight are kept in memory.
+     */
+    private void streamFileHashes() throws IOException, NoSuchAlgorithmException, InterruptedException, ExecutionException {
+        final Map<Path, Long> fileSizes = new ConcurrentHashMap<>();
+        final Map<Path, Long> fileLastModified = new ConcurrentHashMap<>();
+        final HashFormat hashFormat = this.getHashFormat();
+
+        final ConcurrentHasher hasher = this.newConcurrentHasher();
+        hasher.setResultHandler((filename, hashes) -> this.out.println(
+                hashFormat.format(
+                        this.algorithms,
+                        hashes,
+                        filename.toFile().getAbsolutePath(),
+                        fileSizes.remove(filename),
+                        fileLastModified.remove(filename))));
+
+        this.loadAndHashFiles(hasher, null, fileSizes, fileLastModified);
+    }
+
+    /**
+     * Prints the line of every file in walk order as soon as the ones before
+     * it are printed. The walk is over before hashing starts, since walk
+     * order is only known then, and at most streamOrderedLines files are
+     * hashed and not printed at any time.
+     */
+    private void streamOrderedFileHashes() throws IOException, NoSuchAlgorithmException, InterruptedException, ExecutionException {
         final List<Path> allFiles = new ArrayList<>();
         final Map<Path, Long> fileSizes = new ConcurrentHashMap<>();
         final Map<Path, Long> fileLastModified = new ConcurrentHashMap<>();
+        final HashFormat hashFormat = this.getHashFormat();
+        final OrderedOutput output = new OrderedOutput(this.out, this.getStreamOrderedLines());
+
+        this.loadFilesToHash(allFiles, fileSizes, fileLastModified, null, null);
 
-        this.loadFilesToHash(allFiles, fileSizes, fileLastModified);
-        final Map<Pair<Path, Algorithm>, byte[]> results = new ConcurrentHasher().hashFiles(allFiles,
+        final ConcurrentHasher hasher = this.newConcurrentHasher();
+        hasher.setResultHandler(new FileResultHandler() {
+            @Override
+            public void hashed(Path filename, List<byte[]> hashes) {
+                output.done(filename, hashFormat.format(
+                        algorithms,
+                        hashes,
+                        filename.toFile().getAbsolutePath(),
+                        fileSizes.get(filename),
+                        fileLastModified.get(filename)));
+            }
+
+            @Override
+            public void failed(Path filename, Exception ex) {
+                output.done(filename, null);
+            }
+        });
+
+        // files go in walk order, so the readers take them in that order too.
+        final PathChannel files = new PathChannel(FOUND_FILES_CAPACITY);
+        final HashJob job = hasher.submit(files,
+                fileSizes,
                 this.algorithms,
                 this.alternative,
                 GENERIC_CRC_SPECS);
+        try {
+            for (Path file : allFiles) {
+                if (!output.add(file, job)) {
+                    break;
+                }
+                files.put(file);
+            }
+        } catch (CancellationException ex) {
+            // the job timed out or died, get says so.
+        } finally {
+            files.close();
+        }
+        this.results(job);
+    }
+
+    public List<String> getFormattedFileHashes() throws IOException, NoSuchAlgorithmException, InterruptedException, ExecutionException {
+        final List<Path> allFiles = new ArrayList<>();
+        final Map<Path, Long> fileSizes = new ConcurrentHashMap<>();
+        final Map<Path, Long> fileLastModified = new ConcurrentHashMap<>();
+
+        final Map<Pair<Path, Algorithm>, byte[]> results = this.loadAndHashFiles(this.newConcurrentHasher(), allFiles, fileSizes, fileLastModified);
 
         final HashFormat hashFormat = this.getHashFormat();
 
         return allFiles.stream()
+                .filter(filename -> !this.failures.containsKey(filename))
                 .map(filename -> hashFormat.format(
                                 this.algorithms,
                                 this.algorithms.stream()
@@ -365,6 +658,72 @@ public class Jacksum2Cli {
         return expectedHashValue;
     }
 
+    public int getReadersPerDevice() {
+        return readersPerDevice;
+    }
+
+    public boolean isWalkFirst() {
+        return walkFirst || fileOrder != null;
+    }
+
+    public FileOrder getFileOrder() {
+        return fileOrder;
+    }
+
+    /**
+     * @return true to measure the weight of every algorithm and store them
+     * instead of hashing.
+     */
+    public boolean isCalibrate() {
+        return calibrate;
+    }
+
+    public boolean isMetrics() {
+        return metrics;
+    }
+
+    public PipelineMetrics getPipelineMetrics() {
+        return pipelineMetrics;
+    }
+
+    public boolean isProgress() {
+        return progress;
+    }
+
+    public boolean isStream() {
+        return stream;
+    }
+
+    /**
+     * @return how many lines ordered streaming may hold back, 0 when not
+     * streaming in order.
+     */
+    public int getStreamOrderedLines() {
+        return streamOrderedLines;
+    }
+
+    /**
+     * @return milliseconds hashing may take, zero for no limit.
+     */
+    public long getTimeout() {
+        return this.timeoutSeconds * 1000L;
+    }
+
+    /**
+     * @return bytes read at once, between ReadSize.MIN and ReadSize.MAX, 0 to
+     * let the hasher choose.
+     */
+    public int getReadSize() {
+        if (readSizeKiB <= 0) {
+            return 0;
+        }
+        return (int) Math.max(ReadSize.MIN, Math.min(ReadSize.MAX, readSizeKiB * 1024L));
+    }
+
+    public ReadMode getReadMode() {
+        return readMode;
+    }
+
     public Encoding getEncoding() {
         if (this.lowerHexaFormat) {
             return Encoding.HEX;
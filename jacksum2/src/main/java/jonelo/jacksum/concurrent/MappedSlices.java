@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2015 Federico Tello Gentile <federicotg@gmail.com>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package jonelo.jacksum.concurrent;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Maps a file a window at a time and hands it out in slices.
+ *
+ * Mappings are only released when they are garbage collected, so windows are
+ * big to keep the number of live mappings low.
+ *
+ * @author Federico Tello Gentile <federicotg@gmail.com>
+ */
+public class MappedSlices implements Closeable {
+
+    public static final int MAPPING_SIZE = 64 * 1024 * 1024;
+    public static final int SLICE_SIZE = 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int sliceSize;
+    private long position = 0;
+    private MappedByteBuffer mapping;
+
+    public MappedSlices(Path file) throws IOException {
+        this(file, SLICE_SIZE);
+    }
+
+    /**
+     * @param file the file to map
+     * @param sliceSize how big the slices are, at most a mapping.
+     * @throws IOException if the file can't be opened.
+     */
+    public MappedSlices(Path file, int sliceSize) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = this.channel.size();
+        this.sliceSize = Math.min(sliceSize, MAPPING_SIZE);
+    }
+
+    /**
+     * @return the next slice or null when the whole file was handed out.
+     * @throws IOException if the file can't be mapped.
+     */
+    public ByteBuffer next() throws IOException {
+        if (this.mapping == null || !this.mapping.hasRemaining()) {
+            if (this.position >= this.size) {
+                return null;
+            }
+            final long length = Math.min(MAPPING_SIZE, this.size - this.position);
+            this.mapping = this.channel.map(FileChannel.MapMode.READ_ONLY, this.position, length);
+            this.position += length;
+        }
+        final ByteBuffer slice = this.mapping.slice();
+        final int length = Math.min(this.sliceSize, slice.remaining());
+        slice.limit(length);
+        this.mapping.position(this.mapping.position() + length);
+        return slice;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+}
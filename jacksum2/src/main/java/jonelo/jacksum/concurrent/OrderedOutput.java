@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2015 Federico Tello Gentile <federicotg@gmail.com>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package jonelo.jacksum.concurrent;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+/**
+ * Prints the line of every file in the order the files were added, as soon as
+ * the ones before it are printed. Files that finish early wait here for the
+ * slow ones, but only so many: once that many files are added and not printed
+ * no more are added, so a huge file holds back a bounded number of lines.
+ *
+ * @author Federico Tello Gentile <federicotg@gmail.com>
+ */
+final class OrderedOutput {
+
+    // how often a full buffer checks if the job is over.
+    private static final long WAIT_MILLIS = 250;
+
+    private final PrintStream out;
+    private final int capacity;
+
+    // the index of every file added and not done, the same file may be added twice.
+    private final Map<Path, Deque<Long>> pending = new HashMap<>();
+    // the lines done before the ones ahead of them, null for failed files.
+    private final Map<Long, String> done = new HashMap<>();
+
+    private long added = 0;
+    private long printed = 0;
+
+    /**
+     * @param out where the lines go.
+     * @param capacity how many files can be added and not printed.
+     */
+    OrderedOutput(PrintStream out, int capacity) {
+        this.out = out;
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * Waits until there is room for another file and takes its place in the
+     * output. Must be called before the file is handed to the hasher.
+     *
+     * @param file the next file
+     * @param job the job hashing the files.
+     * @return false if the job was over before there was room.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    synchronized boolean add(Path file, Future<?> job) throws InterruptedException {
+        while (this.added - this.printed >= this.capacity) {
+            if (job.isDone()) {
+                return false;
+            }
+            this.wait(WAIT_MILLIS);
+        }
+        this.pending.computeIfAbsent(file, key -> new ArrayDeque<>()).add(this.added++);
+        return true;
+    }
+
+    /**
+     * @param file a file that was added.
+     * @param line its line, null if it failed.
+     */
+    synchronized void done(Path file, String line) {
+        final Deque<Long> indexes = this.pending.get(file);
+        if (indexes == null) {
+            return;
+        }
+        final long index = indexes.remove();
+        if (indexes.isEmpty()) {
+            this.pending.remove(file);
+        }
+        this.done.put(index, line);
+        while (this.done.containsKey(this.printed)) {
+            final String next = this.done.remove(this.printed++);
+            if (next != null) {
+                this.out.println(next);
+            }
+        }
+        this.notifyAll();
+    }
+}
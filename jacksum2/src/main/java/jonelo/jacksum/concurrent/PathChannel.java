@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2015 Federico Tello Gentile <federicotg@gmail.com>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package jonelo.jacksum.concurrent;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded channel of files to hash. Whoever finds the files puts them here
+ * while the readers are already taking them, and closes it when there are no
+ * more. A full channel makes the producer wait. Readers waiting for a file
+ * sleep until one is put or the channel is closed.
+ *
+ * @author Federico Tello Gentile <federicotg@gmail.com>
+ */
+public class PathChannel {
+
+    private final ArrayDeque<Path> paths;
+    private final int capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = this.lock.newCondition();
+    private final Condition notFull = this.lock.newCondition();
+    private volatile boolean closed = false;
+    private volatile boolean cancelled = false;
+
+    public PathChannel(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.paths = new ArrayDeque<>(this.capacity);
+    }
+
+    /**
+     * @param paths every file to hash.
+     * @return a closed channel holding all the paths.
+     */
+    public static PathChannel of(Collection<Path> paths) {
+        final PathChannel channel = new PathChannel(paths.size());
+        channel.paths.addAll(paths);
+        channel.close();
+        return channel;
+    }
+
+    /**
+     * Adds a file, waiting while the channel is full.
+     *
+     * @param path a file to hash
+     * @throws InterruptedException if interrupted while waiting.
+     * @throws CancellationException if the channel was cancelled.
+     */
+    public void put(Path path) throws InterruptedException {
+        this.lock.lockInterruptibly();
+        try {
+            if (this.cancelled) {
+                throw new CancellationException("The channel was cancelled.");
+            }
+            if (this.closed) {
+                throw new IllegalStateException("The channel is closed.");
+            }
+            while (this.paths.size() == this.capacity && !this.cancelled) {
+                this.notFull.await();
+            }
+            if (this.cancelled) {
+                // let through, the next put fails.
+                return;
+            }
+            this.paths.add(path);
+            this.notEmpty.signal();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * No more files will be put. Readers waiting for one are woken up.
+     */
+    public void close() {
+        this.lock.lock();
+        try {
+            this.closed = true;
+            this.notEmpty.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Drops every file not taken yet and closes the channel. A producer
+     * waiting to put is let through, the next put fails.
+     */
+    public void cancel() {
+        this.lock.lock();
+        try {
+            this.cancelled = true;
+            this.closed = true;
+            this.paths.clear();
+            this.notEmpty.signalAll();
+            this.notFull.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public int size() {
+        this.lock.lock();
+        try {
+            return this.paths.size();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Waits for the next file.
+     *
+     * @return the next file or null if the channel is closed and empty.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public Path take() throws InterruptedException {
+        this.lock.lockInterruptibly();
+        try {
+            while (this.paths.isEmpty() && !this.closed) {
+                this.notEmpty.await();
+            }
+            // anything put before closing is still there.
+            final Path path = this.paths.poll();
+            if (path != null) {
+                this.notFull.signal();
+            }
+            return path;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+}
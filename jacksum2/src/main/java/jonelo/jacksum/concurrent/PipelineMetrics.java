@@ -0,0 +1,283 @@
+/*
+ * Copyright (C) 2015 Federico Tello Gentile <federicotg@gmail.com>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package jonelo.jacksum.concurrent;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import jonelo.jacksum.algorithm.AbstractChecksum;
+
+/**
+ * Counters of the hashing pipeline: how fast each reader and algorithm goes,
+ * how long they are blocked or waiting, and how full the queues are.
+ *
+ * Readers and hashers look up their Stage or Queue once and update it on
+ * every block, which is a couple of adders and no locks.
+ *
+ * @author Federico Tello Gentile <federicotg@gmail.com>
+ */
+public class PipelineMetrics implements PipelineMetricsMXBean {
+
+    public static final String OBJECT_NAME = "jonelo.jacksum:type=PipelineMetrics";
+
+    /**
+     * A reader or an algorithm.
+     */
+    public static final class Stage {
+
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+
+        /**
+         * @param bytes bytes read or hashed
+         * @param nanos time it took
+         */
+        public void busy(long bytes, long nanos) {
+            this.bytes.add(bytes);
+            this.busyNanos.add(nanos);
+        }
+
+        /**
+         * @param nanos time spent blocked or waiting.
+         */
+        public void waited(long nanos) {
+            this.waitNanos.add(nanos);
+        }
+
+        public long getBytes() {
+            return this.bytes.sum();
+        }
+
+        private double bytesPerSecond() {
+            final long nanos = this.busyNanos.sum();
+            return nanos == 0 ? 0 : this.bytes.sum() * 1e9 / nanos;
+        }
+
+        private long busyMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(this.busyNanos.sum());
+        }
+
+        private long waitMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(this.waitNanos.sum());
+        }
+    }
+
+    /**
+     * Samples of how full a kind of queue is.
+     */
+    public static final class Queue {
+
+        private final DoubleAdder fill = new DoubleAdder();
+        private final LongAdder samples = new LongAdder();
+
+        /**
+         * @param size elements in the queue
+         * @param capacity elements it can hold
+         */
+        public void sample(int size, int capacity) {
+            this.fill.add(capacity == 0 ? 0 : (double) size / capacity);
+            this.samples.increment();
+        }
+
+        private double average() {
+            final long count = this.samples.sum();
+            return count == 0 ? 0 : this.fill.sum() / count;
+        }
+    }
+
+    private final ConcurrentMap<String, Stage> readers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Stage> algorithms = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Queue> queues = new ConcurrentHashMap<>();
+    private volatile long started = System.nanoTime();
+
+    /**
+     * @param name a reader
+     * @return its counters.
+     */
+    public Stage reader(String name) {
+        return this.readers.computeIfAbsent(name, key -> new Stage());
+    }
+
+    /**
+     * @param name an algorithm, or several joined with '+' when they are
+     * hashed together.
+     * @return its counters.
+     */
+    public Stage algorithm(String name) {
+        return this.algorithms.computeIfAbsent(name, key -> new Stage());
+    }
+
+    /**
+     * @param checksums algorithms hashed together.
+     * @return their counters, named after all of them.
+     */
+    public Stage algorithm(List<AbstractChecksum> checksums) {
+        final StringBuilder name = new StringBuilder();
+        for (AbstractChecksum checksum : checksums) {
+            if (name.length() > 0) {
+                name.append('+');
+            }
+            name.append(checksum.getName());
+        }
+        return this.algorithm(name.toString());
+    }
+
+    /**
+     * @param name a kind of queue
+     * @return its samples.
+     */
+    public Queue queue(String name) {
+        return this.queues.computeIfAbsent(name, key -> new Queue());
+    }
+
+    private static <T> Map<String, Long> longs(Map<String, T> values, ToLongFunction<T> value) {
+        final Map<String, Long> answer = new TreeMap<>();
+        for (Map.Entry<String, T> entry : values.entrySet()) {
+            answer.put(entry.getKey(), value.applyAsLong(entry.getValue()));
+        }
+        return answer;
+    }
+
+    private static <T> Map<String, Double> doubles(Map<String, T> values, ToDoubleFunction<T> value) {
+        final Map<String, Double> answer = new TreeMap<>();
+        for (Map.Entry<String, T> entry : values.entrySet()) {
+            answer.put(entry.getKey(), value.applyAsDouble(entry.getValue()));
+        }
+        return answer;
+    }
+
+    @Override
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - this.started);
+    }
+
+    @Override
+    public Map<String, Double> getReaderBytesPerSecond() {
+        return doubles(this.readers, Stage::bytesPerSecond);
+    }
+
+    @Override
+    public Map<String, Long> getReaderBlockedMillis() {
+        return longs(this.readers, Stage::waitMillis);
+    }
+
+    @Override
+    public Map<String, Double> getAlgorithmBytesPerSecond() {
+        return doubles(this.algorithms, Stage::bytesPerSecond);
+    }
+
+    @Override
+    public Map<String, Long> getAlgorithmBusyMillis() {
+        return longs(this.algorithms, Stage::busyMillis);
+    }
+
+    @Override
+    public Map<String, Long> getAlgorithmWaitingMillis() {
+        return longs(this.algorithms, Stage::waitMillis);
+    }
+
+    @Override
+    public Map<String, Double> getQueueOccupancy() {
+        return doubles(this.queues, Queue::average);
+    }
+
+    /**
+     * Forgets everything counted so far. Stages already handed out keep
+     * counting but are not reported anymore.
+     */
+    @Override
+    public void reset() {
+        this.readers.clear();
+        this.algorithms.clear();
+        this.queues.clear();
+        this.started = System.nanoTime();
+    }
+
+    /**
+     * Registers with the platform MBean server under OBJECT_NAME, replacing
+     * whatever was there.
+     *
+     * @throws JMException if it can't be registered.
+     */
+    public void register() throws JMException {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName(OBJECT_NAME);
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(this, name);
+    }
+
+    /**
+     * Unregisters from the platform MBean server if it is there.
+     *
+     * @throws JMException if it can't be unregistered.
+     */
+    public void unregister() throws JMException {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name = new ObjectName(OBJECT_NAME);
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+    }
+
+    private static String mib(double bytesPerSecond) {
+        return String.format("%.1f MiB/s", bytesPerSecond / (1024 * 1024));
+    }
+
+    /**
+     * @return a few lines with every counter, for the end of a run.
+     */
+    public String report() {
+        final StringBuilder answer = new StringBuilder();
+        answer.append("elapsed ").append(this.getElapsedMillis()).append(" ms").append(System.lineSeparator());
+        for (Map.Entry<String, Stage> reader : new TreeMap<>(this.readers).entrySet()) {
+            answer.append("reader ").append(reader.getKey())
+                    .append(": ").append(reader.getValue().getBytes()).append(" bytes, ")
+                    .append(mib(reader.getValue().bytesPerSecond()))
+                    .append(", blocked ").append(reader.getValue().waitMillis()).append(" ms")
+                    .append(System.lineSeparator());
+        }
+        for (Map.Entry<String, Stage> algorithm : new TreeMap<>(this.algorithms).entrySet()) {
+            answer.append("algorithm ").append(algorithm.getKey())
+                    .append(": ").append(algorithm.getValue().getBytes()).append(" bytes, ")
+                    .append(mib(algorithm.getValue().bytesPerSecond()))
+                    .append(", hashing ").append(algorithm.getValue().busyMillis()).append(" ms")
+                    .append(", waiting ").append(algorithm.getValue().waitMillis()).append(" ms")
+                    .append(System.lineSeparator());
+        }
+        for (Map.Entry<String, Double> queue : this.getQueueOccupancy().entrySet()) {
+            answer.append("queue ").append(queue.getKey())
+                    .append(": ").append(String.format("%.0f%%", queue.getValue() * 100)).append(" full on average")
+                    .append(System.lineSeparator());
+        }
+        return answer.toString();
+    }
+}
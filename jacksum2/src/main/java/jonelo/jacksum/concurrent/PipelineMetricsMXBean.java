@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2015 Federico Tello Gentile <federicotg@gmail.com>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package jonelo.jacksum.concurrent;
+
+import java.util.Map;
+
+/**
+ * Where the hashing pipeline spends its time, as seen from JMX.
+ *
+ * @author Federico Tello Gentile <federicotg@gmail.com>
+ */
+public interface PipelineMetricsMXBean {
+
+    long getElapsedMillis();
+
+    /**
+     * @return bytes read per second of reading, by reader.
+     */
+    Map<String, Double> getReaderBytesPerSecond();
+
+    /**
+     * @return milliseconds each reader was blocked because the hashers were
+     * behind or too many files were in flight.
+     */
+    Map<String, Long> getReaderBlockedMillis();
+
+    /**
+     * @return bytes hashed per second of hashing, by algorithm.
+     */
+    Map<String, Double> getAlgorithmBytesPerSecond();
+
+    /**
+     * @return milliseconds each algorithm spent hashing.
+     */
+    Map<String, Long> getAlgorithmBusyMillis();
+
+    /**
+     * @return milliseconds each algorithm had blocks but was waiting for a
+     * thread, or was waiting for blocks.
+     */
+    Map<String, Long> getAlgorithmWaitingMillis();
+
+    /**
+     * @return how full each queue was on average, from 0 to 1.
+     */
+    Map<String, Double> getQueueOccupancy();
+
+    void reset();
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2015 Federico Tello Gentile <federicotg@gmail.com>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package jonelo.jacksum.concurrent;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Passes what the readers and hashers do to a ProgressListener, batched so
+ * the hot path pays an add and a compare per block at most. Hashed bytes are
+ * counted by each task and reported every REPORT_BYTES, read bytes are added
+ * up here and the throughput is sampled every SAMPLE_MILLIS.
+ *
+ * @author Federico Tello Gentile <federicotg@gmail.com>
+ */
+public final class Progress {
+
+    /**
+     * Hashed bytes are reported at least this far apart.
+     */
+    public static final long REPORT_BYTES = 4 * 1024 * 1024;
+
+    private static final long SAMPLE_MILLIS = 250;
+
+    private final ProgressListener listener;
+    private final boolean listening;
+    private final long start = System.nanoTime();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong nextSample = new AtomicLong(this.start);
+
+    public Progress(ProgressListener listener) {
+        this.listener = listener;
+        this.listening = listener != ProgressListener.NONE;
+    }
+
+    /**
+     * @return false when there is no point in counting anything.
+     */
+    public boolean isListening() {
+        return listening;
+    }
+
+    public void fileStarted(Path file, long size) {
+        if (this.listening) {
+            this.listener.fileStarted(file, size);
+        }
+    }
+
+    public void bytesHashed(Path file, String algorithm, long hashed) {
+        if (this.listening) {
+            this.listener.bytesHashed(file, algorithm, hashed);
+        }
+    }
+
+    public void fileFinished(Path file) {
+        if (this.listening) {
+            this.listener.fileFinished(file);
+        }
+    }
+
+    public void fileFailed(Path file, Exception ex) {
+        if (this.listening) {
+            this.listener.fileFailed(file, ex);
+        }
+    }
+
+    private long bytesPerSecond(long total, long now) {
+        final long elapsed = Math.max(1, now - this.start);
+        return (long) (total * 1e9 / elapsed);
+    }
+
+    /**
+     * @param count bytes just read.
+     */
+    public void read(long count) {
+        if (!this.listening) {
+            return;
+        }
+        final long total = this.bytes.addAndGet(count);
+        final long now = System.nanoTime();
+        final long next = this.nextSample.get();
+        // only the reader that moves the sample forward reports it.
+        if (now - next >= 0 && this.nextSample.compareAndSet(next, now + TimeUnit.MILLISECONDS.toNanos(SAMPLE_MILLIS))) {
+            this.listener.throughput(total, this.bytesPerSecond(total, now));
+        }
+    }
+
+    /**
+     * Reports the final throughput.
+     */
+    public void finish() {
+        if (this.listening) {
+            final long total = this.bytes.get();
+            this.listener.throughput(total, this.bytesPerSecond(total, System.nanoTime()));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2015 Federico Tello Gentile <federicotg@gmail.com>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package jonelo.jacksum.concurrent;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps a single line up to date with how many files are done, how much was
+ * read and how fast.
+ *
+ * @author Federico Tello Gentile <federicotg@gmail.com>
+ */
+class ProgressLine implements ProgressListener {
+
+    private static final double MIB = 1024 * 1024;
+
+    private final PrintStream out;
+    private final AtomicInteger started = new AtomicInteger();
+    private final AtomicInteger finished = new AtomicInteger();
+    private boolean printed = false;
+
+    ProgressLine(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void fileStarted(Path file, long size) {
+        this.started.incrementAndGet();
+    }
+
+    @Override
+    public void fileFinished(Path file) {
+        this.finished.incrementAndGet();
+    }
+
+    @Override
+    public synchronized void throughput(long bytes, long bytesPerSecond) {
+        this.out.print(String.format("\r%d/%d files %.1f MiB %.1f MiB/s",
+                this.finished.get(),
+                this.started.get(),
+                bytes / MIB,
+                bytesPerSecond / MIB));
+        this.out.flush();
+        this.printed = true;
+    }
+
+    /**
+     * Moves past the line so whatever comes next does not overwrite it.
+     */
+    public synchronized void end() {
+        if (this.printed) {
+            this.out.println();
+            this.printed = false;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2015 Federico Tello Gentile <federicotg@gmail.com>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package jonelo.jacksum.concurrent;
+
+import java.nio.file.Path;
+
+/**
+ * Told how hashing goes while it runs. Calls come from the reader and hashing
+ * threads, several at once, so implementations must be thread safe and quick.
+ * Nothing is reported per block: bytes are batched and throughput is sampled.
+ *
+ * @author Federico Tello Gentile <federicotg@gmail.com>
+ */
+public interface ProgressListener {
+
+    /**
+     * Listens to nothing.
+     */
+    ProgressListener NONE = new ProgressListener() {
+    };
+
+    /**
+     * @param file a file a reader is about to read.
+     * @param size its size, -1 if unknown.
+     */
+    default void fileStarted(Path file, long size) {
+    }
+
+    /**
+     * Called every few megabytes and once more when the algorithm is done
+     * with the file.
+     *
+     * @param file the file
+     * @param algorithm the name of the algorithm.
+     * @param bytes how many bytes of the file the algorithm has hashed so
+     * far.
+     */
+    default void bytesHashed(Path file, String algorithm, long bytes) {
+    }
+
+    /**
+     * @param file a file every algorithm is done with. Its results are
+     * already there.
+     */
+    default void fileFinished(Path file) {
+    }
+
+    /**
+     * @param file a file that could not be hashed. It has no results and is
+     * not reported as finished.
+     * @param ex what went wrong.
+     */
+    default void fileFailed(Path file, Exception ex) {
+    }
+
+    /**
+     * Called a few times a second while reading and once when everything is
+     * done.
+     *
+     * @param bytes how many bytes were read so far.
+     * @param bytesPerSecond how fast they were read since the start.
+     */
+    default void throughput(long bytes, long bytesPerSecond) {
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2015 Federico Tello Gentile <federicotg@gmail.com>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package jonelo.jacksum.concurrent;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BooleanSupplier;
+import jonelo.jacksum.algorithm.AbstractChecksum;
+import jonelo.jacksum.algorithm.Combinable;
+
+/**
+ * Hashes a single file with several threads. The file is split in contiguous
+ * ranges, each range is read with positional reads and hashed with its own
+ * checksums, and then the checksums of every range are combined in order.
+ *
+ * Only works when every checksum is Combinable. On a spinning disk the ranges
+ * make the heads seek back and forth, so it is meant for devices that take
+ * several readers.
+ *
+ * @author Federico Tello Gentile <federicotg@gmail.com>
+ */
+public class RangeHasher {
+
+    // smaller ranges are not worth a thread.
+    public static final long MIN_RANGE = 16 * 1024 * 1024;
+
+    private final Executor executor;
+    private final int ranges;
+    private final long minRange;
+
+    public RangeHasher(Executor executor, int ranges) {
+        this(executor, ranges, MIN_RANGE);
+    }
+
+    /**
+     * @param executor hashes every range but the first, which is hashed by
+     * the calling thread.
+     * @param ranges the most ranges a file is split in.
+     * @param minRange the smallest range worth its own thread.
+     */
+    public RangeHasher(Executor executor, int ranges, long minRange) {
+        this.executor = executor;
+        this.ranges = Math.max(1, ranges);
+        this.minRange = Math.max(1, minRange);
+    }
+
+    /**
+     * @param checksums checksums of a file
+     * @return true if they can all be computed in ranges.
+     */
+    public static boolean isCombinable(List<AbstractChecksum> checksums) {
+        for (AbstractChecksum checksum : checksums) {
+            if (!(checksum instanceof Combinable)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param size the size of a file.
+     * @return how many ranges it is split in.
+     */
+    public int rangesFor(long size) {
+        return (int) Math.max(1, Math.min(this.ranges, size / this.minRange));
+    }
+
+    /**
+     * @param file the file to hash.
+     * @param checksums a list of new Combinable checksums for each range, all
+     * of them with the same algorithms in the same order. Use rangesFor to
+     * know how many.
+     * @return the first list, updated with the whole file.
+     * @throws IOException if the file can't be read.
+     */
+    public List<AbstractChecksum> hash(Path file, List<List<AbstractChecksum>> checksums) throws IOException {
+        return this.hash(file, checksums, () -> false);
+    }
+
+    /**
+     * @param file the file to hash.
+     * @param checksums a list of new Combinable checksums for each range, all
+     * of them with the same algorithms in the same order. Use rangesFor to
+     * know how many.
+     * @param cancelled checked between reads, every range stops once it is
+     * true.
+     * @return the first list, updated with the whole file.
+     * @throws IOException if the file can't be read, an
+     * InterruptedIOException if it was cancelled.
+     */
+    public List<AbstractChecksum> hash(Path file, List<List<AbstractChecksum>> checksums, BooleanSupplier cancelled) throws IOException {
+        final int count = checksums.size();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+
+            final List<CompletableFuture<Void>> others = new ArrayList<>(count - 1);
+            for (int i = 1; i < count; i++) {
+                final long start = size * i / count;
+                final long end = size * (i + 1) / count;
+                final List<AbstractChecksum> range = checksums.get(i);
+                others.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        update(channel, start, end, range, cancelled);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                }, this.executor));
+            }
+
+            IOException failure = null;
+            try {
+                update(channel, 0, size / count, checksums.get(0), cancelled);
+            } catch (IOException ex) {
+                failure = ex;
+            }
+            // every range is done with the channel before it is closed.
+            for (CompletableFuture<Void> other : others) {
+                try {
+                    other.join();
+                } catch (CompletionException ex) {
+                    if (failure == null) {
+                        failure = ex.getCause() instanceof UncheckedIOException
+                                ? ((UncheckedIOException) ex.getCause()).getCause()
+                                : new IOException(ex.getCause());
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        final List<AbstractChecksum> answer = checksums.get(0);
+        for (int i = 1; i < count; i++) {
+            final List<AbstractChecksum> range = checksums.get(i);
+            for (int j = 0; j < answer.size(); j++) {
+                ((Combinable) answer.get(j)).combine(range.get(j));
+            }
+        }
+        return answer;
+    }
+
+    private static void update(FileChannel channel, long start, long end, List<AbstractChecksum> checksums, BooleanSupplier cancelled) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(ReadSize.forFile(end - start, 0));
+        final byte[] bytes = buffer.array();
+        long position = start;
+        while (position < end) {
+            if (cancelled.getAsBoolean()) {
+                throw new InterruptedIOException("Cancelled while being hashed.");
+            }
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            while (buffer.hasRemaining()) {
+                final int read = channel.read(buffer, position + buffer.position());
+                if (read < 0) {
+                    throw new EOFException("File shrank while being hashed.");
+                }
+            }
+            final int length = buffer.position();
+            // a cache block at a time, so every checksum finds it in cache.
+            for (int offset = 0; offset < length; offset += HashStrategy.CACHE_BLOCK) {
+                final int chunk = Math.min(HashStrategy.CACHE_BLOCK, length - offset);
+                for (AbstractChecksum checksum : checksums) {
+                    checksum.update(bytes, offset, chunk);
+                }
+            }
+            position += length;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2015 Federico Tello Gentile <federicotg@gmail.com>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package jonelo.jacksum.concurrent;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * How FileReaders and DataReaders get the bytes of a file.
+ *
+ * @author Federico Tello Gentile <federicotg@gmail.com>
+ */
+public enum ReadMode {
+
+    /**
+     * Read into pooled heap buffers.
+     */
+    STREAM {
+                @Override
+                public boolean isMapped(Path file) {
+                    return false;
+                }
+            },
+    /**
+     * Map the file and hand the mapped regions to the checksums.
+     */
+    MAPPED {
+                @Override
+                public boolean isMapped(Path file) {
+                    return true;
+                }
+            },
+    /**
+     * Map large files on local file systems, read everything else.
+     */
+    AUTO {
+                @Override
+                public boolean isMapped(Path file) {
+                    try {
+                        // the size goes first, looking up the file store is not cheap.
+                        return Files.size(file) >= MAPPED_THRESHOLD
+                                && isLocal(Files.getFileStore(file).type());
+                    } catch (IOException ioEx) {
+                        return false;
+                    }
+                }
+            };
+
+    /**
+     * Files at least this big are mapped in AUTO mode.
+     */
+    public static final long MAPPED_THRESHOLD = 16 * 1024 * 1024;
+
+    /*
+     * Paging a network file system through a mapping is usually slower than
+     * plain reads and an I/O error becomes a fatal error instead of an exception.
+     */
+    private static final List<String> REMOTE_FILE_SYSTEMS = Arrays.asList(
+            "nfs", "cifs", "smb", "ncpfs", "afs", "9p", "fuse", "sshfs",
+            "davfs", "glusterfs", "ceph", "lustre", "gpfs");
+
+    private static boolean isLocal(String type) {
+        final String lowerCaseType = type.toLowerCase(Locale.ROOT);
+        return REMOTE_FILE_SYSTEMS.stream().noneMatch(lowerCaseType::startsWith);
+    }
+
+    /**
+     * @param file the file about to be read
+     * @return true if the file should be mapped instead of read.
+     */
+    public abstract boolean isMapped(Path file);
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2015 Federico Tello Gentile <federicotg@gmail.com>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package jonelo.jacksum.concurrent;
+
+/**
+ * How much of a file is read at once. Big reads cost fewer system calls and
+ * keep the device busy, but the hashers can't start until the first one is
+ * done, so smaller files get smaller reads.
+ *
+ * @author Federico Tello Gentile <federicotg@gmail.com>
+ */
+public final class ReadSize {
+
+    public static final int MIN = 64 * 1024;
+    public static final int MAX = 4 * 1024 * 1024;
+
+    // enough reads for the hashers to work while the rest of the file is read.
+    private static final int READS_PER_FILE = 16;
+
+    private ReadSize() {
+    }
+
+    /**
+     * @param fileSize the size of the file, -1 if unknown.
+     * @param readSize the configured read size, 0 to choose one.
+     * @return the read size for the file.
+     */
+    public static int forFile(long fileSize, int readSize) {
+        if (readSize > 0) {
+            return readSize;
+        }
+        if (fileSize < 0) {
+            return MAX;
+        }
+        final long perRead = Long.highestOneBit(Math.max(1, fileSize / READS_PER_FILE));
+        return (int) Math.max(MIN, Math.min(MAX, perRead));
+    }
+
+    /**
+     * @param readSize the configured read size, 0 to choose one.
+     * @return the biggest read any file can get.
+     */
+    public static int max(int readSize) {
+        return readSize > 0 ? readSize : MAX;
+    }
+}
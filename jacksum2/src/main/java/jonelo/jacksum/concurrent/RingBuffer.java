@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2015 Federico Tello Gentile <federicotg@gmail.com>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package jonelo.jacksum.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single producer, multiple consumer broadcast ring buffer. Every published
+ * element is seen by every consumer, each one tracking its own sequence, so
+ * an element is published once no matter how many consumers there are and
+ * no locks are taken on either side.
+ *
+ * The producer only overwrites a slot once the slowest consumer is past it.
+ *
+ * @author Federico Tello Gentile <federicotg@gmail.com>
+ * @param <T> the element type
+ */
+public class RingBuffer<T> {
+
+    // consumer sequences are this many longs apart so they don't share a cache line.
+    private static final int PADDING = 16;
+
+    private static final int SPINS = 100;
+    private static final int YIELDS = 100;
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Object[] entries;
+    private final int mask;
+    private final int consumers;
+
+    // last published sequence
+    private final AtomicLong cursor = new AtomicLong(-1);
+
+    // last consumed sequence of each consumer
+    private final AtomicLongArray sequences;
+
+    // only touched by the producer
+    private long nextSequence = 0;
+    private long cachedMinSequence = -1;
+    private Runnable published;
+
+    /**
+     * @param capacity minimum capacity, it is rounded up to a power of two.
+     * @param consumers how many consumers will take every element.
+     */
+    public RingBuffer(int capacity, int consumers) {
+        final int size = capacityFor(capacity);
+        this.entries = new Object[size];
+        this.mask = size - 1;
+        this.consumers = consumers;
+        this.sequences = new AtomicLongArray(consumers * PADDING);
+        for (int i = 0; i < consumers; i++) {
+            this.sequences.set(i * PADDING, -1);
+        }
+    }
+
+    /**
+     * @param capacity a minimum capacity
+     * @return the actual capacity of a ring created with it.
+     */
+    public static int capacityFor(int capacity) {
+        return Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+    }
+
+    /**
+     * Consumers that don't wait for elements need to be told about them. Must
+     * be set before the producer starts.
+     *
+     * @param published called by the producer after every publish.
+     */
+    public void setPublished(Runnable published) {
+        this.published = published;
+    }
+
+    public int getConsumers() {
+        return this.consumers;
+    }
+
+    public int getCapacity() {
+        return this.entries.length;
+    }
+
+    /**
+     * @return how many published elements the slowest consumer has not
+     * taken yet.
+     */
+    public int size() {
+        return (int) Math.max(0, this.cursor.get() - this.minSequence());
+    }
+
+    private long minSequence() {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < this.consumers; i++) {
+            min = Math.min(min, this.sequences.get(i * PADDING));
+        }
+        return min;
+    }
+
+    /**
+     * Publishes an element to every consumer. Waits while the slowest
+     * consumer is a full ring behind. Must only be called by one thread.
+     *
+     * @param element the element
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void publish(T element) throws InterruptedException {
+        final long sequence = this.nextSequence;
+        final long wrapPoint = sequence - this.entries.length;
+
+        if (wrapPoint > this.cachedMinSequence) {
+            long min;
+            int idle = 0;
+            while (wrapPoint > (min = this.minSequence())) {
+                idle(idle++);
+            }
+            this.cachedMinSequence = min;
+        }
+
+        this.entries[(int) sequence & this.mask] = element;
+        this.nextSequence = sequence + 1;
+        // store-release, consumers reading the cursor see the element.
+        this.cursor.lazySet(sequence);
+        if (this.published != null) {
+            this.published.run();
+        }
+    }
+
+    /**
+     * @param consumer the consumer index, from zero to consumers - 1
+     * @return true if the consumer has an element to take.
+     */
+    public boolean isAvailable(int consumer) {
+        return this.cursor.get() > this.sequences.get(consumer * PADDING);
+    }
+
+    /**
+     * Takes the next element for the given consumer if there is one. Never
+     * waits.
+     *
+     * @param consumer the consumer index, from zero to consumers - 1
+     * @return the next element or null if there is none yet.
+     */
+    @SuppressWarnings("unchecked")
+    public T tryTake(int consumer) {
+        final int index = consumer * PADDING;
+        final long sequence = this.sequences.get(index) + 1;
+        if (this.cursor.get() < sequence) {
+            return null;
+        }
+        final T element = (T) this.entries[(int) sequence & this.mask];
+        this.sequences.lazySet(index, sequence);
+        return element;
+    }
+
+    /**
+     * Takes the next element for the given consumer.
+     *
+     * @param consumer the consumer index, from zero to consumers - 1
+     * @param timeout how long to wait
+     * @param unit the timeout unit
+     * @return the next element or null if the timeout elapsed.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    @SuppressWarnings("unchecked")
+    public T poll(int consumer, long timeout, TimeUnit unit) throws InterruptedException {
+        final int index = consumer * PADDING;
+        final long sequence = this.sequences.get(index) + 1;
+
+        if (this.cursor.get() < sequence) {
+            final long deadline = System.nanoTime() + unit.toNanos(timeout);
+            int idle = 0;
+            while (this.cursor.get() < sequence) {
+                if (idle > SPINS && System.nanoTime() - deadline > 0) {
+                    return null;
+                }
+                idle(idle++);
+            }
+        }
+
+        final T element = (T) this.entries[(int) sequence & this.mask];
+        this.sequences.lazySet(index, sequence);
+        return element;
+    }
+
+    /**
+     * Takes the next element for the given consumer, waiting as long as
+     * needed.
+     *
+     * @param consumer the consumer index, from zero to consumers - 1
+     * @return the next element.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public T take(int consumer) throws InterruptedException {
+        return this.poll(consumer, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Busy spins first, then yields and finally parks for longer and longer.
+     */
+    private static void idle(int count) throws InterruptedException {
+        if (count < SPINS) {
+            return;
+        }
+        if (count < SPINS + YIELDS) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(Math.min(MAX_PARK_NANOS, 1000L << Math.min(20, count - SPINS - YIELDS)));
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2015 Federico Tello Gentile <federicotg@gmail.com>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package jonelo.jacksum.concurrent;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The device files are read from. Files on the same device share its
+ * readers, how many depends on whether the device is a spinning disk.
+ *
+ * @author Federico Tello Gentile <federicotg@gmail.com>
+ */
+public class StorageDevice {
+
+    private static final Path SYS_BLOCK = Paths.get("/sys/class/block");
+
+    public static final StorageDevice UNKNOWN = new StorageDevice("unknown", Type.UNKNOWN);
+
+    public enum Type {
+
+        // concurrent readers make the heads seek back and forth.
+        ROTATIONAL(1),
+        SOLID_STATE(Math.max(8, Runtime.getRuntime().availableProcessors())),
+        UNKNOWN(4);
+
+        private final int readers;
+
+        private Type(int readers) {
+            this.readers = readers;
+        }
+
+        /**
+         * @return how many readers a device of this type gets by default.
+         */
+        public int getReaders() {
+            return readers;
+        }
+    }
+
+    private final String name;
+    private final Type type;
+
+    public StorageDevice(String name, Type type) {
+        this.name = name;
+        this.type = type;
+    }
+
+    /**
+     * Looks up the device behind a file store. On Linux the store name is
+     * the block device, a partition is named after the disk it is on and
+     * sysfs tells if that rotates. Anything else is UNKNOWN.
+     *
+     * @param store a file store
+     * @return its device, every partition of a disk gets the same one.
+     */
+    public static StorageDevice of(FileStore store) {
+        final String storeName = store.name();
+        if (!storeName.startsWith("/dev/")) {
+            return new StorageDevice(storeName, Type.UNKNOWN);
+        }
+        try {
+            // /dev/mapper names are links to the dm-N device
+            final String device = Paths.get(storeName).toRealPath().getFileName().toString();
+            Path block = SYS_BLOCK.resolve(device).toRealPath();
+            if (Files.exists(block.resolve("partition"))) {
+                // partitions are below their disk
+                block = block.getParent();
+            }
+            final String disk = "/dev/" + block.getFileName();
+            final List<String> rotational = Files.readAllLines(block.resolve("queue").resolve("rotational"), StandardCharsets.US_ASCII);
+            if (rotational.isEmpty()) {
+                return new StorageDevice(disk, Type.UNKNOWN);
+            }
+            return new StorageDevice(disk, "1".equals(rotational.get(0).trim()) ? Type.ROTATIONAL : Type.SOLID_STATE);
+        } catch (IOException ex) {
+            return new StorageDevice(storeName, Type.UNKNOWN);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(this.name);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof StorageDevice
+                && Objects.equals(this.name, ((StorageDevice) obj).name);
+    }
+
+    @Override
+    public String toString() {
+        return this.name + " (" + this.type + ")";
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2015 Federico Tello Gentile <federicotg@gmail.com>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package jonelo.jacksum.concurrent;
+
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Finds the device of each file. Looking up a file store is expensive, so it
+ * is done once per directory, and sysfs is read once per store. Stores on
+ * the same disk, its partitions, are the same device.
+ *
+ * Not thread safe.
+ *
+ * @author Federico Tello Gentile <federicotg@gmail.com>
+ */
+public class StorageDevices {
+
+    private final Map<Path, StorageDevice> byDirectory = new HashMap<>();
+    private final Map<String, StorageDevice> byStore = new HashMap<>();
+    private final Map<String, StorageDevice> byDisk = new HashMap<>();
+
+    /**
+     * @param file a file
+     * @return the device it is on, UNKNOWN if it can't be found.
+     */
+    public StorageDevice of(Path file) {
+        final Path directory = file.toAbsolutePath().getParent();
+        StorageDevice device = this.byDirectory.get(directory);
+        if (device != null) {
+            return device;
+        }
+        try {
+            final FileStore store = Files.getFileStore(file);
+            device = this.byStore.computeIfAbsent(store.name(), name -> {
+                // partitions of the same disk share it, and its readers.
+                final StorageDevice disk = StorageDevice.of(store);
+                return this.byDisk.computeIfAbsent(disk.getName(), diskName -> disk);
+            });
+            if (directory != null) {
+                this.byDirectory.put(directory, device);
+            }
+            return device;
+        } catch (IOException ex) {
+            // the reader will fail on it anyway.
+            return StorageDevice.UNKNOWN;
+        }
+    }
+}
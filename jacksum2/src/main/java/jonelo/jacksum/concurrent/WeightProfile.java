@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2015 Federico Tello Gentile <federicotg@gmail.com>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package jonelo.jacksum.concurrent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import jonelo.jacksum.algorithm.AbstractChecksum;
+import jonelo.jacksum.algorithm.Algorithm;
+
+/**
+ * Measures how expensive each algorithm is on this machine and keeps the
+ * result in a profile file, so HashAlgorithm weights follow the actual CPU
+ * and JDK instead of the table measured once on another machine.
+ *
+ * Measured weights are scaled to match the table on the median, so
+ * thresholds like HashStrategy.CHEAP_WEIGHT keep their meaning while the
+ * weights relative to each other come from this machine.
+ *
+ * @author Federico Tello Gentile <federicotg@gmail.com>
+ */
+public final class WeightProfile {
+
+    /**
+     * System property with the path of the profile file.
+     */
+    public static final String FILE_PROPERTY = "jacksum2.weights";
+
+    /**
+     * How long each algorithm is measured by default, the same again is
+     * spent warming it up.
+     */
+    public static final long DEFAULT_MILLIS = 100;
+
+    // weight of a nanosecond per byte when nothing measured is in the table.
+    private static final double DEFAULT_SCALE = 100;
+
+    // the same bytes every time, in cache.
+    private static final byte[] SAMPLE = new byte[64 * 1024];
+
+    static {
+        new Random(0).nextBytes(SAMPLE);
+    }
+
+    private WeightProfile() {
+    }
+
+    /**
+     * @return the profile file, ~/.jacksum2/weights.properties unless the
+     * jacksum2.weights system property says otherwise.
+     */
+    public static Path getDefaultFile() {
+        final String file = System.getProperty(FILE_PROPERTY);
+        return file != null
+                ? Paths.get(file)
+                : Paths.get(System.getProperty("user.home"), ".jacksum2", "weights.properties");
+    }
+
+    private static double nanosPerByte(AbstractChecksum checksum, long nanos) {
+        long bytes = 0;
+        final long start = System.nanoTime();
+        long elapsed;
+        do {
+            checksum.update(SAMPLE, 0, SAMPLE.length);
+            bytes += SAMPLE.length;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < nanos);
+        return (double) elapsed / bytes;
+    }
+
+    private static double nanosPerByte(Algorithm algorithm, long millis) throws NoSuchAlgorithmException {
+        final AbstractChecksum checksum = algorithm.getChecksumInstance(false);
+        final long nanos = TimeUnit.MILLISECONDS.toNanos(millis);
+        // once for the JIT, once for real.
+        nanosPerByte(checksum, nanos);
+        final double answer = nanosPerByte(checksum, nanos);
+        checksum.getByteArray();
+        return answer;
+    }
+
+    /**
+     * Measures the algorithms one after another on the calling thread.
+     * Algorithms that can't be instantiated are left out.
+     *
+     * @param algorithms the algorithms to measure.
+     * @param millis how long to measure each one.
+     * @return the weight of each algorithm by canonical name.
+     */
+    public static Map<String, Integer> calibrate(Collection<Algorithm> algorithms, long millis) {
+        final Map<String, Double> costs = new TreeMap<>();
+        for (Algorithm algorithm : algorithms) {
+            if (algorithm.equals(Algorithm.CRC_GENERIC)) {
+                // it takes its parameters from a spec.
+                continue;
+            }
+            try {
+                costs.put(algorithm.getCanonicalName(), nanosPerByte(algorithm, millis));
+            } catch (NoSuchAlgorithmException ex) {
+                Logger.getLogger(WeightProfile.class.getName()).throwing("WeightProfile", "calibrate", ex);
+            }
+        }
+
+        final List<Double> scales = new ArrayList<>(costs.size());
+        for (Map.Entry<String, Double> cost : costs.entrySet()) {
+            final Integer weight = HashAlgorithm.getTableWeight(cost.getKey());
+            if (weight != null) {
+                scales.add(weight / cost.getValue());
+            }
+        }
+        Collections.sort(scales);
+        final double scale = scales.isEmpty() ? DEFAULT_SCALE : scales.get(scales.size() / 2);
+
+        final Map<String, Integer> answer = new TreeMap<>();
+        for (Map.Entry<String, Double> cost : costs.entrySet()) {
+            answer.put(cost.getKey(), (int) Math.max(1, Math.round(cost.getValue() * scale)));
+        }
+        return answer;
+    }
+
+    /**
+     * @param file a profile file
+     * @return the weights in it by canonical name.
+     * @throws IOException if the file can't be read.
+     */
+    public static Map<String, Integer> load(Path file) throws IOException {
+        final Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        final Map<String, Integer> answer = new TreeMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            try {
+                answer.put(name, Integer.valueOf(properties.getProperty(name).trim()));
+            } catch (NumberFormatException ex) {
+                // a hand edited line, the table weight is used instead.
+                Logger.getLogger(WeightProfile.class.getName()).throwing("WeightProfile", "load", ex);
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * @param weights weights by canonical name
+     * @param file where to write them, its directory is created if needed.
+     * @throws IOException if the file can't be written.
+     */
+    public static void store(Map<String, Integer> weights, Path file) throws IOException {
+        final Properties properties = new Properties();
+        for (Map.Entry<String, Integer> weight : weights.entrySet()) {
+            properties.setProperty(weight.getKey(), weight.getValue().toString());
+        }
+        final Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        try (OutputStream out = Files.newOutputStream(file)) {
+            properties.store(out, "jacksum2 algorithm weights");
+        }
+    }
+}
@@ -37,6 +37,7 @@ import jonelo.jacksum.JacksumAPI;
 import jonelo.jacksum.algorithm.AbstractChecksum;
 import jonelo.jacksum.algorithm.Edonkey;
 import jonelo.jacksum.algorithm.MD;
+import jonelo.jacksum.algorithm.MDbouncycastle;
 import jonelo.jacksum.algorithm.MDgnu;
 import jonelo.jacksum.algorithm.None;
 import jonelo.jacksum.algorithm.Read;
@@ -222,6 +223,7 @@ public class CheckFile {
 
             if (checksum instanceof MD
                     || checksum instanceof MDgnu
+                    || checksum instanceof MDbouncycastle
                     || checksum instanceof Edonkey) {
                 ignoretokens--; // no size value
             }
@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2015 Federico Tello Gentile <federicotg@gmail.com>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import jonelo.jacksum.algorithm.AbstractChecksum;
+import jonelo.jacksum.algorithm.Adler32alt;
+import jonelo.jacksum.algorithm.Crc64;
+import jonelo.jacksum.algorithm.Elf;
+import jonelo.jacksum.algorithm.Sum16;
+import jonelo.jacksum.algorithm.Sum24;
+import jonelo.jacksum.algorithm.Sum32;
+import jonelo.jacksum.algorithm.Sum8;
+import jonelo.jacksum.algorithm.SumBSD;
+import jonelo.jacksum.algorithm.SumSysV;
+import jonelo.jacksum.algorithm.Xor8;
+import jonelo.jacksum.algorithm.CrcGeneric;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks the fast update paths of the checksums against the byte at a time
+ * ones they replace.
+ *
+ * @author Federico Tello Gentile <federicotg@gmail.com>
+ */
+public class ChecksumKernelTest {
+
+    private static final byte[] CHECK = "123456789".getBytes(StandardCharsets.US_ASCII);
+
+    private static long reference(AbstractChecksum checksum, byte[] bytes, int offset, int length) {
+        checksum.reset();
+        for (int i = offset; i < offset + length; i++) {
+            checksum.update(bytes[i]);
+        }
+        return checksum.getValue();
+    }
+
+    // every length and offset up to a few blocks, split in two updates, and
+    // through a direct buffer.
+    private static void assertSameAsReference(AbstractChecksum checksum, byte[] bytes, String message) {
+        for (int length = 0; length < 80; length++) {
+            for (int offset = 0; offset < 3; offset++) {
+                final long expected = reference(checksum, bytes, offset, length);
+                checksum.reset();
+                checksum.update(bytes, offset, length);
+                assertEquals(message + " length " + length + " offset " + offset, expected, checksum.getValue());
+
+                checksum.reset();
+                checksum.update(bytes, offset, length / 3);
+                checksum.update(bytes, offset + length / 3, length - length / 3);
+                assertEquals(message + " split length " + length, expected, checksum.getValue());
+            }
+        }
+        final long expected = reference(checksum, bytes, 0, bytes.length);
+        final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        checksum.reset();
+        checksum.update(direct);
+        assertEquals(message + " direct buffer", expected, checksum.getValue());
+        checksum.reset();
+        checksum.update(bytes, 0, bytes.length);
+        assertEquals(message + " whole", expected, checksum.getValue());
+    }
+
+    private static byte[] randomBytes(Random random, int length) {
+        final byte[] answer = new byte[length];
+        random.nextBytes(answer);
+        return answer;
+    }
+
+    @Test
+    public void crcGenericCheckValues() throws Exception {
+        assertEquals(0xCBF43926L, check(new CrcGeneric(32, 0x04C11DB7L, 0xFFFFFFFFL, true, true, 0xFFFFFFFFL)));
+        assertEquals(0xFC891918L, check(new CrcGeneric(32, 0x04C11DB7L, 0xFFFFFFFFL, false, false, 0xFFFFFFFFL)));
+        assertEquals(0x21CF02L, check(new CrcGeneric(24, 0x864CFBL, 0xB704CEL, false, false, 0)));
+        assertEquals(0x29B1L, check(new CrcGeneric(16, 0x1021L, 0xFFFFL, false, false, 0)));
+        assertEquals(0xD4164FC646L, check(new CrcGeneric(40, 0x0004820009L, 0, false, false, 0xFFFFFFFFFFL)));
+        assertEquals(0x995DC9BBDF1939FAL, check(new CrcGeneric(64, 0x42F0E1EBA9EA3693L, -1L, true, true, -1L)));
+        assertEquals(0x62EC59E3F1A4F00AL, check(new CrcGeneric(64, 0x42F0E1EBA9EA3693L, -1L, false, false, -1L)));
+    }
+
+    // the check value of the standard input, and the input repeated so it
+    // goes through the tables.
+    private static long check(CrcGeneric crc) {
+        final byte[] bytes = new byte[CHECK.length * 4 + 1];
+        for (int i = 0; i < 4; i++) {
+            System.arraycopy(CHECK, 0, bytes, 1 + i * CHECK.length, CHECK.length);
+        }
+        crc.update(bytes, 1, CHECK.length);
+        final long answer = crc.getValue();
+        crc.reset();
+        crc.update(bytes, 1, bytes.length - 1);
+        assertEquals(reference(crc, bytes, 1, bytes.length - 1), crc.getValue());
+        return answer;
+    }
+
+    @Test
+    public void crcGenericMatchesJavaCrc32() throws Exception {
+        final byte[] bytes = randomBytes(new Random(7), 100_000);
+        final CRC32 expected = new CRC32();
+        expected.update(bytes, 3, bytes.length - 3);
+        final CrcGeneric crc = new CrcGeneric("32,04C11DB7,FFFFFFFF,true,true,FFFFFFFF");
+        crc.update(bytes, 3, bytes.length - 3);
+        assertEquals(expected.getValue(), crc.getValue());
+    }
+
+    @Test
+    public void crcGenericMatchesByteAtATime() throws Exception {
+        final Random random = new Random(42);
+        final byte[] bytes = randomBytes(random, 300);
+        for (int width = 8; width <= 64; width++) {
+            final long mask = ~0L >>> (64 - width);
+            for (int flags = 0; flags < 4; flags++) {
+                final CrcGeneric crc = new CrcGeneric(width,
+                        random.nextLong() & mask,
+                        random.nextLong() & mask,
+                        (flags & 1) != 0,
+                        (flags & 2) != 0,
+                        random.nextLong() & mask);
+                assertSameAsReference(crc, bytes, crc.getString());
+            }
+        }
+    }
+
+    @Test
+    public void crc64MatchesByteAtATime() {
+        final Crc64 crc = new Crc64();
+        assertSameAsReference(crc, randomBytes(new Random(64), 300), "crc64");
+
+        crc.reset();
+        crc.update("IHATEMATHIHATEMATH".getBytes(StandardCharsets.US_ASCII), 9, 9);
+        assertEquals("e3dcadd69b01add1", crc.getFormattedValue());
+    }
+
+    @Test
+    public void sumsMatchByteAtATime() {
+        final byte[] bytes = randomBytes(new Random(8), 300);
+        for (AbstractChecksum sum : new AbstractChecksum[]{
+            new Sum8(), new Sum16(), new Sum24(), new Sum32(),
+            new SumBSD(), new SumSysV(), new Xor8(), new Elf()}) {
+            assertSameAsReference(sum, bytes, sum.getName());
+        }
+    }
+
+    @Test
+    public void sumsFollowTheArrayTheyAreGiven() {
+        final Random random = new Random(16);
+        final byte[] first = randomBytes(random, 100);
+        final byte[] second = randomBytes(random, 100);
+        final byte[] both = new byte[first.length + second.length];
+        System.arraycopy(first, 0, both, 0, first.length);
+        System.arraycopy(second, 0, both, first.length, second.length);
+        for (AbstractChecksum sum : new AbstractChecksum[]{
+            new Sum8(), new SumBSD(), new SumSysV(), new Xor8(), new Elf()}) {
+            final long expected = reference(sum, both, 0, both.length);
+            sum.reset();
+            sum.update(first, 0, first.length);
+            sum.update(second, 0, second.length);
+            assertEquals(sum.getName(), expected, sum.getValue());
+        }
+        final Adler32 expected = new Adler32();
+        expected.update(both, 0, both.length);
+        final Adler32alt adler = new Adler32alt();
+        adler.update(first, 0, first.length);
+        adler.update(second, 0, second.length);
+        assertEquals(expected.getValue(), adler.getValue());
+    }
+
+    @Test
+    public void sumsDoNotOverflowTheirLanes() {
+        final byte[] bytes = new byte[100_003];
+        Arrays.fill(bytes, (byte) 0xFF);
+        final Sum32 sum = new Sum32();
+        sum.update(bytes, 1, bytes.length - 1);
+        assertEquals(255L * (bytes.length - 1), sum.getValue());
+        final SumSysV sysv = new SumSysV();
+        assertSameAsReference(sysv, bytes, "sumsysv");
+    }
+
+    private static void assertSameAsZlib(byte[] bytes, int offset, int length) {
+        final Adler32 expected = new Adler32();
+        expected.update(bytes, offset, length);
+        final Adler32alt adler = new Adler32alt();
+        adler.update(bytes, offset, length);
+        assertEquals("length " + length + " offset " + offset, expected.getValue(), adler.getValue());
+
+        final ByteBuffer direct = ByteBuffer.allocateDirect(length);
+        direct.put(bytes, offset, length).flip();
+        adler.reset();
+        adler.update(direct);
+        assertEquals("direct length " + length, expected.getValue(), adler.getValue());
+    }
+
+    @Test
+    public void adler32altMatchesZlib() {
+        final byte[] bytes = randomBytes(new Random(32), 3 * 5552 + 100);
+        for (int length = 0; length < 80; length++) {
+            for (int offset = 0; offset < 3; offset++) {
+                assertSameAsZlib(bytes, offset, length);
+            }
+        }
+        for (int length : new int[]{5551, 5552, 5553, 5560, 3 * 5552 + 99}) {
+            assertSameAsZlib(bytes, 1, length);
+        }
+
+        // the biggest sums there can be, right up to the reductions.
+        final byte[] ones = new byte[3 * 5552 + 100];
+        Arrays.fill(ones, (byte) 0xFF);
+        assertSameAsZlib(ones, 0, ones.length);
+
+        // many small updates, where calling zlib costs the most.
+        final Adler32 expected = new Adler32();
+        final Adler32alt adler = new Adler32alt();
+        for (int i = 0; i + 7 <= bytes.length; i += 7) {
+            expected.update(bytes, i, 7);
+            adler.update(bytes, i, 7);
+        }
+        assertEquals(expected.getValue(), adler.getValue());
+    }
+}
@@ -19,25 +19,66 @@
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.management.ManagementFactory;
 import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import javax.management.ObjectName;
 import jonelo.jacksum.JacksumAPI;
+import jonelo.jacksum.algorithm.AbstractChecksum;
 import jonelo.jacksum.algorithm.Algorithm;
+import jonelo.jacksum.algorithm.Combinable;
 import jonelo.jacksum.concurrent.ConcurrentHasher;
 import jonelo.jacksum.concurrent.Encoding;
+import jonelo.jacksum.concurrent.FileOrder;
+import jonelo.jacksum.concurrent.FileResultHandler;
+import jonelo.jacksum.concurrent.FileWalker;
+import jonelo.jacksum.concurrent.HashAlgorithm;
+import jonelo.jacksum.concurrent.HashJob;
+import jonelo.jacksum.concurrent.HashStrategy;
 import jonelo.jacksum.concurrent.Pair;
+import jonelo.jacksum.concurrent.PathChannel;
+import jonelo.jacksum.concurrent.PipelineMetrics;
+import jonelo.jacksum.concurrent.Progress;
+import jonelo.jacksum.concurrent.ProgressListener;
+import jonelo.jacksum.concurrent.RangeHasher;
+import jonelo.jacksum.concurrent.ReadMode;
+import jonelo.jacksum.concurrent.ReadSize;
+import jonelo.jacksum.concurrent.RingBuffer;
+import jonelo.jacksum.concurrent.StorageDevice;
+import jonelo.jacksum.concurrent.StorageDevices;
+import jonelo.jacksum.concurrent.WeightProfile;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import static org.junit.Assert.*;
 
 /**
@@ -47,6 +88,10 @@ import static org.junit.Assert.*;
 public class ConcurrentTest {
 
     private static Map<String, HashResultHolder> IMAGE_FILE_RESULTS;
+    private static Map<String, HashResultHolder> TEXT_FILE_RESULTS;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
 
     public ConcurrentTest() {
     }
@@ -61,6 +106,13 @@ public class ConcurrentTest {
 
         IMAGE_FILE_RESULTS = list.stream().collect(Collectors.toMap(HashResultHolder::getAlgorithm, Function.identity()));
 
+        list = new ObjectMapper().readValue(
+                JacksonJacksumTest.class.getResourceAsStream("/jacksum_text.json"),
+                new TypeReference<List<HashResultHolder>>() {
+                });
+
+        TEXT_FILE_RESULTS = list.stream().collect(Collectors.toMap(HashResultHolder::getAlgorithm, Function.identity()));
+
     }
 
     @AfterClass
@@ -95,4 +147,785 @@ public class ConcurrentTest {
 
     }
 
+    @Test
+    public void severalFilesSharePooledBlocks() throws NoSuchAlgorithmException, InterruptedException, ExecutionException, IOException {
+
+        // two checksums and two digests, every algorithm is checked above.
+        List<Algorithm> algorithms = Arrays.asList(Algorithm.CRC32, Algorithm.ADLER32, Algorithm.MD5, Algorithm.SHA256);
+
+        Path image = FileSystems.getDefault().getPath(JacksonJacksumTest.class.getResource("/image.jpg").getFile());
+        Path text = FileSystems.getDefault().getPath(JacksonJacksumTest.class.getResource("/text.txt").getFile());
+
+        // copies of the same files so recycled blocks get refilled.
+        List<Path> images = new ArrayList<>();
+        List<Path> texts = new ArrayList<>();
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            images.add(Files.copy(image, this.folder.getRoot().toPath().resolve("image" + i + ".jpg")));
+            texts.add(Files.copy(text, this.folder.getRoot().toPath().resolve("text" + i + ".txt")));
+            files.add(images.get(i));
+            files.add(texts.get(i));
+        }
+
+        Map<Pair<Path, Algorithm>, byte[]> results = new ConcurrentHasher().hashFiles(files, algorithms, false, Collections.emptyList());
+
+        for (int i = 0; i < images.size(); i++) {
+            for (Algorithm algorithm : algorithms) {
+                assertEquals(IMAGE_FILE_RESULTS.get(algorithm.getCanonicalName()).getValue(),
+                        Encoding.HEX.encode(-1, ' ', results.get(new Pair<>(images.get(i), algorithm))));
+                assertEquals(TEXT_FILE_RESULTS.get(algorithm.getCanonicalName()).getValue(),
+                        Encoding.HEX.encode(-1, ' ', results.get(new Pair<>(texts.get(i), algorithm))));
+            }
+        }
+    }
+
+    @Test
+    public void manyMoreFilesThanInFlight() throws NoSuchAlgorithmException, InterruptedException, ExecutionException, IOException {
+
+        List<Algorithm> algorithms = new ArrayList<>();
+        algorithms.add(Algorithm.CRC32);
+        algorithms.add(Algorithm.MD5);
+
+        Path text = FileSystems.getDefault().getPath(JacksonJacksumTest.class.getResource("/text.txt").getFile());
+
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            files.add(Files.copy(text, this.folder.getRoot().toPath().resolve("text" + i + ".txt")));
+        }
+
+        // through the HashingTasks and hashed inline by the readers.
+        for (int threshold : new int[]{0, 1024}) {
+            ConcurrentHasher hasher = new ConcurrentHasher();
+            hasher.setSmallFileThreshold(threshold);
+            hasher.setReadersPerDevice(threshold == 0 ? 3 : 0);
+            Map<Pair<Path, Algorithm>, byte[]> results = hasher.hashFiles(files, algorithms, false, Collections.emptyList());
+
+            assertEquals(files.size() * algorithms.size(), results.size());
+            for (Path file : files) {
+                for (Algorithm algorithm : algorithms) {
+                    assertEquals(TEXT_FILE_RESULTS.get(algorithm.getCanonicalName()).getValue(),
+                            Encoding.HEX.encode(-1, ' ', results.get(new Pair<>(file, algorithm))));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void everyFileOrderHashesEveryFile() throws NoSuchAlgorithmException, InterruptedException, ExecutionException, IOException {
+
+        List<Algorithm> algorithms = Collections.singletonList(Algorithm.CRC32);
+
+        Path text = FileSystems.getDefault().getPath(JacksonJacksumTest.class.getResource("/text.txt").getFile());
+
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Path dir = Files.createDirectories(this.folder.getRoot().toPath().resolve("dir" + (i % 4)));
+            files.add(Files.copy(text, dir.resolve("text" + i + ".txt")));
+        }
+
+        for (FileOrder order : FileOrder.values()) {
+            List<Path> sorted = order.sort(files, Collections.emptyMap());
+            assertEquals(order.toString(), new HashSet<>(files), new HashSet<>(sorted));
+            assertEquals(order.toString(), files.size(), sorted.size());
+
+            ConcurrentHasher hasher = new ConcurrentHasher();
+            hasher.setFileOrder(order);
+            Map<Pair<Path, Algorithm>, byte[]> results = hasher.hashFiles(files, algorithms, false, Collections.emptyList());
+            assertEquals(files.size(), results.size());
+            for (Path file : files) {
+                assertEquals(order + " " + file,
+                        TEXT_FILE_RESULTS.get(Algorithm.CRC32.getCanonicalName()).getValue(),
+                        Encoding.HEX.encode(-1, ' ', results.get(new Pair<>(file, Algorithm.CRC32))));
+            }
+        }
+        List<Path> byDirectory = FileOrder.DIRECTORY.sort(files, Collections.emptyMap());
+        for (int i = 1; i < byDirectory.size(); i++) {
+            assertTrue(byDirectory.get(i - 1).compareTo(byDirectory.get(i)) < 0);
+        }
+
+        // inodes from the walk give the same order as looking them up.
+        Map<Path, Long> inodes = new HashMap<>();
+        for (Path file : files) {
+            inodes.put(file, FileOrder.inode(Files.readAttributes(file, BasicFileAttributes.class)));
+            Object ino = Files.getFileStore(file).supportsFileAttributeView("unix") ? Files.getAttribute(file, "unix:ino") : null;
+            if (ino instanceof Number) {
+                assertEquals(((Number) ino).longValue(), (long) inodes.get(file));
+            }
+        }
+        assertEquals(FileOrder.INODE.sort(files, Collections.emptyMap()), FileOrder.INODE.sort(files, Collections.emptyMap(), inodes));
+    }
+
+    @Test
+    public void readSizesGiveTheSameHashes() throws NoSuchAlgorithmException, InterruptedException, ExecutionException, IOException {
+
+        // two checksums and two digests, every algorithm is checked above.
+        List<Algorithm> algorithms = Arrays.asList(Algorithm.CRC32, Algorithm.ADLER32, Algorithm.MD5, Algorithm.SHA256);
+
+        Path image = FileSystems.getDefault().getPath(JacksonJacksumTest.class.getResource("/image.jpg").getFile());
+
+        // odd sizes so reads and slices don't line up with anything.
+        for (int readSize : new int[]{0, 1000, 4097, ReadSize.MAX}) {
+            for (ReadMode mode : new ReadMode[]{ReadMode.STREAM, ReadMode.MAPPED}) {
+                ConcurrentHasher hasher = new ConcurrentHasher();
+                hasher.setReadSize(readSize);
+                hasher.setReadMode(mode);
+                hasher.setSmallFileThreshold(0);
+                Map<Pair<Path, Algorithm>, byte[]> results = hasher.hashFiles(Collections.singletonList(image), algorithms, false, Collections.emptyList());
+                for (Algorithm algorithm : algorithms) {
+                    assertEquals(readSize + " " + mode + " " + algorithm,
+                            IMAGE_FILE_RESULTS.get(algorithm.getCanonicalName()).getValue(),
+                            Encoding.HEX.encode(-1, ' ', results.get(new Pair<>(image, algorithm))));
+                }
+            }
+        }
+
+        assertEquals(ReadSize.MIN, ReadSize.forFile(0, 0));
+        assertEquals(ReadSize.MAX, ReadSize.forFile(-1, 0));
+        assertEquals(ReadSize.MAX, ReadSize.forFile(1L << 40, 0));
+        assertEquals(1024 * 1024, ReadSize.forFile(16 * 1024 * 1024, 0));
+        assertEquals(1000, ReadSize.forFile(1L << 40, 1000));
+    }
+
+    @Test
+    public void everyStrategyGivesTheSameHashes() throws NoSuchAlgorithmException, InterruptedException, ExecutionException, IOException {
+
+        List<Algorithm> algorithms = Arrays.asList(Algorithm.CRC32, Algorithm.ADLER32, Algorithm.MD5, Algorithm.SHA1);
+
+        Path image = FileSystems.getDefault().getPath(JacksonJacksumTest.class.getResource("/image.jpg").getFile());
+
+        for (HashStrategy strategy : HashStrategy.values()) {
+            // small reads so blocks are split into several cache blocks and mapped views.
+            for (ReadMode mode : new ReadMode[]{ReadMode.STREAM, ReadMode.MAPPED}) {
+                ConcurrentHasher hasher = new ConcurrentHasher();
+                hasher.setHashStrategy(strategy);
+                hasher.setReadMode(mode);
+                hasher.setReadSize(3 * HashStrategy.CACHE_BLOCK + 17);
+                hasher.setSmallFileThreshold(0);
+                Map<Pair<Path, Algorithm>, byte[]> results = hasher.hashFiles(Collections.singletonList(image), algorithms, false, Collections.emptyList());
+
+                List<HashAlgorithm> hashes = new ArrayList<>();
+                for (Algorithm algorithm : algorithms) {
+                    hashes.add(HashAlgorithm.getAlgorithm(algorithm.getChecksumInstance(false)));
+                }
+                hasher.updateHashes(image.toFile(), hashes);
+
+                for (int i = 0; i < algorithms.size(); i++) {
+                    String expected = IMAGE_FILE_RESULTS.get(algorithms.get(i).getCanonicalName()).getValue();
+                    assertEquals(strategy + " " + mode + " " + algorithms.get(i),
+                            expected,
+                            Encoding.HEX.encode(-1, ' ', results.get(new Pair<>(image, algorithms.get(i)))));
+                    assertEquals(strategy + " " + mode + " " + algorithms.get(i),
+                            expected,
+                            Encoding.HEX.encode(-1, ' ', hashes.get(i).getChecksum().getByteArray()));
+                }
+            }
+        }
+
+        assertTrue(HashStrategy.AUTO.isBlocked(weight("crc32", "adler32", "md5")));
+        assertFalse(HashStrategy.AUTO.isBlocked(weight("sha3-512", "whirlpool0")));
+    }
+
+    private static int weight(String... names) {
+        int weight = 0;
+        for (String name : names) {
+            weight += HashAlgorithm.getWeight(name);
+        }
+        return weight;
+    }
+
+    @Test
+    public void calibratedWeightsAreStoredAndUsed() throws IOException {
+        Map<String, Integer> weights = WeightProfile.calibrate(Arrays.asList(Algorithm.CRC32, Algorithm.CRC_GENERIC, Algorithm.MD5, Algorithm.SHA3_512), 5);
+
+        assertEquals(3, weights.size());
+        assertTrue(weights.get("sha3-512") > weights.get("crc32"));
+
+        Path profile = this.folder.getRoot().toPath().resolve("profile").resolve("weights.properties");
+        WeightProfile.store(weights, profile);
+        assertEquals(weights, WeightProfile.load(profile));
+
+        try {
+            HashAlgorithm.useWeights(Collections.singletonMap("sha-256", 7));
+            assertEquals(7, HashAlgorithm.getWeight("sha-256"));
+            assertEquals(7, HashAlgorithm.getWeight("sha256"));
+            // not measured, from the table whatever the alias.
+            assertEquals(105, HashAlgorithm.getWeight("crc32"));
+            assertEquals(426, HashAlgorithm.getWeight("has-160"));
+
+            // only loaded when asked for.
+            String previous = System.setProperty(WeightProfile.FILE_PROPERTY, profile.toString());
+            try {
+                assertTrue(HashAlgorithm.loadProfile());
+                assertEquals((int) weights.get("md5"), HashAlgorithm.getWeight("md5"));
+                // the profile replaces whatever was measured before.
+                assertEquals(585, HashAlgorithm.getWeight("sha-256"));
+                System.setProperty(WeightProfile.FILE_PROPERTY, profile.resolveSibling("missing").toString());
+                assertFalse(HashAlgorithm.loadProfile());
+            } finally {
+                if (previous == null) {
+                    System.clearProperty(WeightProfile.FILE_PROPERTY);
+                } else {
+                    System.setProperty(WeightProfile.FILE_PROPERTY, previous);
+                }
+            }
+        } finally {
+            HashAlgorithm.useWeights(Collections.emptyMap());
+        }
+    }
+
+    private static List<AbstractChecksum> combinableChecksums() throws NoSuchAlgorithmException {
+        List<AbstractChecksum> answer = new ArrayList<>();
+        for (Algorithm algorithm : Arrays.asList(Algorithm.ADLER32, Algorithm.CKSUM, Algorithm.CRC16,
+                Algorithm.CRC24, Algorithm.CRC32, Algorithm.CRC32_BZIP2, Algorithm.CRC32_MPEG2, Algorithm.CRC64,
+                Algorithm.CRC8, Algorithm.FCS16, Algorithm.SUM8, Algorithm.SUM16, Algorithm.SUM24,
+                Algorithm.SUM32, Algorithm.SUMSYSV, Algorithm.XOR8)) {
+            answer.add(algorithm.getChecksumInstance(false));
+            answer.add(algorithm.getChecksumInstance(true));
+        }
+        // odd width, reflected with xor and a full 64 bit register.
+        answer.add(Algorithm.CRC_GENERIC.getChecksumInstance("12,80F,0,false,true,0", false));
+        answer.add(Algorithm.CRC_GENERIC.getChecksumInstance("16,1021,FFFF,true,true,FFFF", false));
+        answer.add(Algorithm.CRC_GENERIC.getChecksumInstance("64,42F0E1EBA9EA3693,FFFFFFFFFFFFFFFF,false,false,FFFFFFFFFFFFFFFF", false));
+        return answer;
+    }
+
+    @Test
+    public void combinedRangesGiveTheSameHashes() throws NoSuchAlgorithmException, IOException {
+
+        Path image = FileSystems.getDefault().getPath(JacksonJacksumTest.class.getResource("/image.jpg").getFile());
+        byte[] bytes = Files.readAllBytes(image);
+
+        List<AbstractChecksum> expected = combinableChecksums();
+        for (AbstractChecksum checksum : expected) {
+            checksum.update(bytes);
+        }
+
+        // an empty part in the middle must not change anything.
+        List<AbstractChecksum> parts = combinableChecksums();
+        for (int i = 0; i < parts.size(); i++) {
+            AbstractChecksum first = parts.get(i);
+            first.update(bytes, 0, 1000);
+            ((Combinable) first).combine(combinableChecksums().get(i));
+            AbstractChecksum last = combinableChecksums().get(i);
+            last.update(bytes, 1000, bytes.length - 1000);
+            ((Combinable) first).combine(last);
+            assertEquals(first.getName(), expected.get(i).getFormattedValue(), first.getFormattedValue());
+            assertEquals(first.getName(), bytes.length, first.getLength());
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            for (int ranges : new int[]{1, 2, 3, 7}) {
+                RangeHasher hasher = new RangeHasher(pool, ranges, 1000);
+                List<List<AbstractChecksum>> checksums = new ArrayList<>();
+                for (int i = 0; i < hasher.rangesFor(bytes.length); i++) {
+                    checksums.add(combinableChecksums());
+                }
+                assertEquals(ranges, checksums.size());
+                List<AbstractChecksum> actual = hasher.hash(image, checksums);
+                for (int i = 0; i < actual.size(); i++) {
+                    assertEquals(ranges + " " + actual.get(i).getName(),
+                            expected.get(i).getFormattedValue(),
+                            actual.get(i).getFormattedValue());
+                }
+            }
+
+            // a cancelled file stops before its next read.
+            RangeHasher hasher = new RangeHasher(pool, 3, 1000);
+            List<List<AbstractChecksum>> checksums = Arrays.asList(combinableChecksums(), combinableChecksums(), combinableChecksums());
+            try {
+                hasher.hash(image, checksums, () -> true);
+                fail("a cancelled file was hashed");
+            } catch (InterruptedIOException expectedEx) {
+            }
+            assertEquals(0, checksums.get(0).get(0).getLength());
+        } finally {
+            pool.shutdown();
+        }
+
+        assertTrue(RangeHasher.isCombinable(combinableChecksums()));
+        assertFalse(RangeHasher.isCombinable(Arrays.asList(Algorithm.CRC32.getChecksumInstance(false), Algorithm.MD5.getChecksumInstance(false))));
+        try {
+            ((Combinable) Algorithm.CRC16.getChecksumInstance(false)).combine(Algorithm.CRC8.getChecksumInstance(false));
+            fail("different algorithms were combined");
+        } catch (IllegalArgumentException expectedEx) {
+        }
+    }
+
+    @Test
+    public void splitFilesGiveTheSameHashes() throws NoSuchAlgorithmException, InterruptedException, ExecutionException, IOException {
+
+        // big enough for two ranges where there are two cores.
+        byte[] bytes = new byte[(int) (2 * RangeHasher.MIN_RANGE + 12345)];
+        new Random(7).nextBytes(bytes);
+        Path big = Files.write(this.folder.getRoot().toPath().resolve("big.bin"), bytes);
+
+        for (List<Algorithm> algorithms : Arrays.asList(
+                Arrays.asList(Algorithm.CRC32, Algorithm.ADLER32, Algorithm.CRC64),
+                Arrays.asList(Algorithm.CRC32, Algorithm.MD5))) {
+            ConcurrentHasher hasher = new ConcurrentHasher();
+            // whatever the device, it takes concurrent reads.
+            hasher.setReadersPerDevice(2);
+            hasher.setSplitThreshold(1);
+            Map<Pair<Path, Algorithm>, byte[]> split = hasher.hashFiles(Collections.singletonList(big), algorithms, false, Collections.emptyList());
+            hasher.setSplitThreshold(0);
+            Map<Pair<Path, Algorithm>, byte[]> whole = hasher.hashFiles(Collections.singletonList(big), algorithms, false, Collections.emptyList());
+            for (Algorithm algorithm : algorithms) {
+                assertArrayEquals(algorithm.toString(), whole.get(new Pair<>(big, algorithm)), split.get(new Pair<>(big, algorithm)));
+            }
+        }
+    }
+
+    @Test
+    public void progressReportsEveryFile() throws Exception {
+
+        Path image = FileSystems.getDefault().getPath(JacksonJacksumTest.class.getResource("/image.jpg").getFile());
+        byte[] bytes = new byte[(int) (2 * Progress.REPORT_BYTES + 12345)];
+        new Random(11).nextBytes(bytes);
+        Path big = Files.write(this.folder.getRoot().toPath().resolve("big.bin"), bytes);
+        List<Path> files = Arrays.asList(image, big);
+
+        Set<Path> started = ConcurrentHashMap.newKeySet();
+        Set<Path> finished = ConcurrentHashMap.newKeySet();
+        Map<Pair<Path, String>, Long> hashed = new ConcurrentHashMap<>();
+        AtomicInteger reports = new AtomicInteger();
+        AtomicLong read = new AtomicLong();
+
+        ConcurrentHasher hasher = new ConcurrentHasher();
+        hasher.setProgressListener(new ProgressListener() {
+            @Override
+            public void fileStarted(Path file, long size) {
+                started.add(file);
+            }
+
+            @Override
+            public void bytesHashed(Path file, String algorithm, long bytes) {
+                reports.incrementAndGet();
+                hashed.put(new Pair<>(file, algorithm), bytes);
+            }
+
+            @Override
+            public void fileFinished(Path file) {
+                assertTrue(started.contains(file));
+                finished.add(file);
+            }
+
+            @Override
+            public void throughput(long bytes, long bytesPerSecond) {
+                read.set(bytes);
+            }
+        });
+        hasher.hashFiles(files, Arrays.asList(Algorithm.CRC32, Algorithm.MD5), false, Collections.emptyList());
+
+        assertEquals(new HashSet<>(files), started);
+        assertEquals(new HashSet<>(files), finished);
+        for (Path file : files) {
+            assertEquals(Long.valueOf(Files.size(file)), hashed.get(new Pair<>(file, "crc32")));
+            assertEquals(Long.valueOf(Files.size(file)), hashed.get(new Pair<>(file, "md5")));
+        }
+        assertEquals(Files.size(image) + Files.size(big), read.get());
+        // batched, not a report for every block.
+        assertTrue(reports.get() <= 2 * (1 + 3));
+
+        // a single file through the Hashers.
+        hashed.clear();
+        started.clear();
+        finished.clear();
+        hasher.updateHashes(big.toFile(), Arrays.asList(
+                HashAlgorithm.getAlgorithm(Algorithm.CRC32.getChecksumInstance(false)),
+                HashAlgorithm.getAlgorithm(Algorithm.MD5.getChecksumInstance(false))));
+        assertEquals(Collections.singleton(big), finished);
+        assertEquals(Long.valueOf(bytes.length), hashed.get(new Pair<>(big, "crc32")));
+        assertEquals(Long.valueOf(bytes.length), hashed.get(new Pair<>(big, "md5")));
+        assertEquals(bytes.length, read.get());
+    }
+
+    @Test
+    public void streamedResultsMatchTheMap() throws Exception {
+
+        Path image = FileSystems.getDefault().getPath(JacksonJacksumTest.class.getResource("/image.jpg").getFile());
+        Path empty = Files.createFile(this.folder.getRoot().toPath().resolve("empty"));
+        Path small = Files.write(this.folder.getRoot().toPath().resolve("small"), new byte[]{1, 2, 3});
+        List<Path> files = Arrays.asList(image, empty, small);
+        List<Algorithm> algorithms = Arrays.asList(Algorithm.CRC32, Algorithm.MD5, Algorithm.SHA1);
+
+        ConcurrentHasher hasher = new ConcurrentHasher();
+        Map<Pair<Path, Algorithm>, byte[]> expected = hasher.hashFiles(files, algorithms, false, Collections.emptyList());
+
+        for (HashStrategy strategy : new HashStrategy[]{HashStrategy.SPREAD, HashStrategy.BLOCKED}) {
+            Map<Path, List<byte[]>> streamed = new ConcurrentHashMap<>();
+            AtomicInteger calls = new AtomicInteger();
+            hasher.setHashStrategy(strategy);
+            hasher.setResultHandler((file, hashes) -> {
+                calls.incrementAndGet();
+                streamed.put(file, hashes);
+            });
+            assertTrue(hasher.hashFiles(files, algorithms, false, Collections.emptyList()).isEmpty());
+
+            assertEquals(files.size(), calls.get());
+            for (Path file : files) {
+                for (int i = 0; i < algorithms.size(); i++) {
+                    assertArrayEquals(expected.get(new Pair<>(file, algorithms.get(i))), streamed.get(file).get(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void unreadableFilesAreFailures() throws Exception {
+
+        Path image = FileSystems.getDefault().getPath(JacksonJacksumTest.class.getResource("/image.jpg").getFile());
+        // gone before it is read, one looks small and one big.
+        Path small = this.folder.getRoot().toPath().resolve("small");
+        Path big = this.folder.getRoot().toPath().resolve("big");
+        Map<Path, Long> sizes = new HashMap<>();
+        sizes.put(small, 10L);
+        sizes.put(big, 10L * 1024 * 1024);
+
+        Set<Path> failed = ConcurrentHashMap.newKeySet();
+        ConcurrentHasher hasher = new ConcurrentHasher();
+        hasher.setProgressListener(new ProgressListener() {
+            @Override
+            public void fileFailed(Path file, Exception ex) {
+                failed.add(file);
+            }
+        });
+        HashJob job = hasher.submit(Arrays.asList(image, small, big), sizes, Arrays.asList(Algorithm.CRC32, Algorithm.MD5), false, Collections.emptyList());
+        Map<Pair<Path, Algorithm>, byte[]> results = job.get();
+
+        assertEquals(2, results.size());
+        assertNotNull(results.get(new Pair<>(image, Algorithm.CRC32)));
+        assertEquals(new HashSet<>(Arrays.asList(small, big)), job.getFailures().keySet());
+        assertEquals(job.getFailures().keySet(), failed);
+        assertFalse(job.isCancelled());
+    }
+
+    @Test(timeout = 10000)
+    public void updateHashesReportsUnreadableFiles() throws Exception {
+        Path missing = this.folder.getRoot().toPath().resolve("missing");
+        for (ReadMode mode : ReadMode.values()) {
+            ConcurrentHasher hasher = new ConcurrentHasher();
+            hasher.setReadMode(mode);
+            try {
+                hasher.updateHashes(missing.toFile(), Arrays.asList(
+                        HashAlgorithm.getAlgorithm(Algorithm.CRC32.getChecksumInstance(false)),
+                        HashAlgorithm.getAlgorithm(Algorithm.MD5.getChecksumInstance(false))));
+                fail(mode.name());
+            } catch (IOException ex) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void resultHandlersHearOfFailures() throws Exception {
+
+        Path image = FileSystems.getDefault().getPath(JacksonJacksumTest.class.getResource("/image.jpg").getFile());
+        Path small = this.folder.getRoot().toPath().resolve("small");
+        Path big = this.folder.getRoot().toPath().resolve("big");
+        Map<Path, Long> sizes = new HashMap<>();
+        sizes.put(small, 10L);
+        sizes.put(big, 10L * 1024 * 1024);
+
+        Set<Path> hashed = ConcurrentHashMap.newKeySet();
+        Set<Path> failed = ConcurrentHashMap.newKeySet();
+        ConcurrentHasher hasher = new ConcurrentHasher();
+        hasher.setResultHandler(new FileResultHandler() {
+            @Override
+            public void hashed(Path file, List<byte[]> hashes) {
+                hashed.add(file);
+            }
+
+            @Override
+            public void failed(Path file, Exception ex) {
+                failed.add(file);
+            }
+        });
+        HashJob job = hasher.submit(Arrays.asList(image, small, big), sizes, Arrays.asList(Algorithm.CRC32, Algorithm.MD5), false, Collections.emptyList());
+        job.get();
+
+        assertEquals(Collections.singleton(image), hashed);
+        assertEquals(new HashSet<>(Arrays.asList(small, big)), failed);
+    }
+
+    @Test(timeout = 60000)
+    public void producersAreReleasedWhenThePipelineDies() throws Exception {
+
+        Path image = FileSystems.getDefault().getPath(JacksonJacksumTest.class.getResource("/image.jpg").getFile());
+
+        // every reader dies on its first file, the way a bug in one would.
+        ConcurrentHasher hasher = new ConcurrentHasher();
+        hasher.setProgressListener(new ProgressListener() {
+            @Override
+            public void fileStarted(Path file, long size) {
+                throw new IllegalStateException("broken reader");
+            }
+        });
+        // as big as the channel the command line walks into, and more files
+        // than the channels of the devices hold.
+        final int count = 128 * 1024;
+        PathChannel files = new PathChannel(4096);
+        HashJob job = hasher.submit(files, Collections.emptyMap(), Arrays.asList(Algorithm.CRC32, Algorithm.MD5), false, Collections.emptyList());
+        int put = 0;
+        try {
+            // like the walker and the ordered output feed it.
+            for (; put < count; put++) {
+                files.put(image);
+            }
+            fail("every file was put");
+        } catch (CancellationException expectedEx) {
+        } finally {
+            files.close();
+        }
+        assertTrue(put < count);
+        try {
+            job.get();
+            fail();
+        } catch (ExecutionException expectedEx) {
+            assertTrue(expectedEx.getCause() instanceof ExecutionException);
+            assertEquals("broken reader", expectedEx.getCause().getCause().getMessage());
+        }
+        assertFalse(job.isCancelled());
+
+        // one that fails before it takes a single file.
+        files = new PathChannel(4096);
+        job = hasher.submit(files, Collections.emptyMap(), Collections.singletonList(Algorithm.CRC_GENERIC), false, Collections.emptyList());
+        try {
+            for (int i = 0; i < count; i++) {
+                files.put(image);
+            }
+            fail("every file was put");
+        } catch (CancellationException expectedEx) {
+        }
+        try {
+            job.get();
+            fail();
+        } catch (ExecutionException expectedEx) {
+        }
+    }
+
+    @Test
+    public void cancelledJobsStopRightAway() throws Exception {
+
+        Path image = FileSystems.getDefault().getPath(JacksonJacksumTest.class.getResource("/image.jpg").getFile());
+        List<Algorithm> algorithms = Arrays.asList(Algorithm.CRC32, Algorithm.MD5);
+
+        // a producer that hangs, like a walk over a broken mount.
+        PathChannel stuck = new PathChannel(16);
+        stuck.put(image);
+        ConcurrentHasher hasher = new ConcurrentHasher();
+        HashJob job = hasher.submit(stuck, Collections.emptyMap(), algorithms, false, Collections.emptyList());
+        assertTrue(job.cancel(true));
+        assertTrue(job.isDone());
+        try {
+            job.get();
+            fail();
+        } catch (CancellationException expectedEx) {
+        }
+        assertTrue(stuck.isCancelled());
+        assertFalse(job.cancel(true));
+
+        // the deadline interrupts the calling thread, and only the job.
+        hasher.setTimeout(200);
+        long start = System.nanoTime();
+        try {
+            hasher.hashFiles(new PathChannel(16), Collections.emptyMap(), algorithms, false, Collections.emptyList());
+            fail();
+        } catch (CancellationException expectedEx) {
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+        assertFalse(Thread.currentThread().isInterrupted());
+
+        // finished jobs are not cancelled by their deadline.
+        hasher.setTimeout(10_000);
+        HashJob done = hasher.submit(Collections.singletonList(image), Collections.emptyMap(), algorithms, false, Collections.emptyList());
+        assertEquals(2, done.get().size());
+        assertFalse(done.cancel(true));
+    }
+
+    @Test
+    public void metricsCountEveryByte() throws Exception {
+
+        Path image = FileSystems.getDefault().getPath(JacksonJacksumTest.class.getResource("/image.jpg").getFile());
+        long size = Files.size(image);
+
+        for (HashStrategy strategy : new HashStrategy[]{HashStrategy.SPREAD, HashStrategy.BLOCKED}) {
+            ConcurrentHasher hasher = new ConcurrentHasher();
+            // off unless asked for.
+            assertNull(hasher.getMetrics());
+            hasher.setMetrics(new PipelineMetrics());
+            hasher.setHashStrategy(strategy);
+            hasher.setSmallFileThreshold(0);
+            hasher.hashFiles(Collections.singletonList(image), Arrays.asList(Algorithm.CRC32, Algorithm.MD5), false, Collections.emptyList());
+
+            PipelineMetrics metrics = hasher.getMetrics();
+            assertEquals(1, metrics.getReaderBytesPerSecond().size());
+            String reader = metrics.getReaderBytesPerSecond().keySet().iterator().next();
+            assertEquals(size, metrics.reader(reader).getBytes());
+            if (strategy == HashStrategy.SPREAD) {
+                assertEquals(size, metrics.algorithm("crc32").getBytes());
+                assertEquals(size, metrics.algorithm("md5").getBytes());
+            } else {
+                assertEquals(size, metrics.algorithm("crc32+md5").getBytes());
+            }
+            assertTrue(metrics.getQueueOccupancy().containsKey("blocks"));
+            assertTrue(metrics.report().contains("reader " + reader));
+        }
+
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.register();
+        try {
+            ObjectName name = new ObjectName(PipelineMetrics.OBJECT_NAME);
+            assertTrue(ManagementFactory.getPlatformMBeanServer().getAttribute(name, "ElapsedMillis") instanceof Long);
+        } finally {
+            metrics.unregister();
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(PipelineMetrics.OBJECT_NAME)));
+    }
+
+    @Test
+    public void readModesGiveTheSameHashes() throws NoSuchAlgorithmException, InterruptedException, ExecutionException, IOException {
+
+        List<Algorithm> algorithms = IMAGE_FILE_RESULTS.keySet().stream()
+                .map(algorithmName -> Algorithm.getAlgorithm(algorithmName))
+                .collect(Collectors.toList());
+
+        Path image = FileSystems.getDefault().getPath(JacksonJacksumTest.class.getResource("/image.jpg").getFile());
+        Path empty = Files.createFile(this.folder.getRoot().toPath().resolve("empty"));
+
+        for (ReadMode mode : ReadMode.values()) {
+            ConcurrentHasher hasher = new ConcurrentHasher();
+            hasher.setReadMode(mode);
+            Map<Pair<Path, Algorithm>, byte[]> results = hasher.hashFiles(Collections.singletonList(image), algorithms, false, Collections.emptyList());
+            for (Algorithm algorithm : algorithms) {
+                assertEquals(mode + " " + algorithm,
+                        IMAGE_FILE_RESULTS.get(algorithm.getCanonicalName()).getValue(),
+                        Encoding.HEX.encode(-1, ' ', results.get(new Pair<>(image, algorithm))));
+            }
+
+            byte[] emptyStreamed = new ConcurrentHasher().hashFiles(Collections.singletonList(empty), Collections.singletonList(Algorithm.CRC32), false, Collections.emptyList())
+                    .get(new Pair<>(empty, Algorithm.CRC32));
+            byte[] emptyMapped = hasher.hashFiles(Collections.singletonList(empty), Collections.singletonList(Algorithm.CRC32), false, Collections.emptyList())
+                    .get(new Pair<>(empty, Algorithm.CRC32));
+            assertArrayEquals(emptyStreamed, emptyMapped);
+        }
+    }
+
+    @Test
+    public void fileWalkerMatchesFilesWalk() throws IOException {
+        Path root = this.folder.getRoot().toPath();
+        for (int i = 0; i < 5; i++) {
+            Path dir = Files.createDirectories(root.resolve("dir" + i).resolve("sub" + i));
+            for (int j = 0; j < 10; j++) {
+                Files.write(dir.resolve("file" + j), new byte[j]);
+                Files.write(dir.getParent().resolve("file" + j), new byte[j + i]);
+            }
+        }
+        Files.write(root.resolve("top"), new byte[3]);
+
+        for (int maxDepth : new int[]{1, 2, Integer.MAX_VALUE}) {
+            List<Path> expected = Files.walk(root, maxDepth)
+                    .filter(path -> Files.isRegularFile(path))
+                    .collect(Collectors.toList());
+
+            List<Pair<Path, BasicFileAttributes>> actual = new FileWalker(maxDepth, true).walk(Collections.singletonList(root));
+
+            assertEquals(expected, actual.stream().map(Pair::getFirst).collect(Collectors.toList()));
+            for (Pair<Path, BasicFileAttributes> file : actual) {
+                assertEquals(Files.size(file.getFirst()), file.getSecond().size());
+            }
+
+            Set<Path> visited = ConcurrentHashMap.newKeySet();
+            new FileWalker(maxDepth, true).visit(Collections.singletonList(root), file -> visited.add(file.getFirst()));
+            assertEquals(new HashSet<>(expected), visited);
+        }
+    }
+
+    @Test
+    public void filesInTheSameFolderShareTheirDevice() throws IOException {
+        Path first = this.folder.newFile().toPath();
+        Path second = this.folder.newFile().toPath();
+
+        StorageDevices devices = new StorageDevices();
+        StorageDevice device = devices.of(first);
+        assertNotNull(device.getType());
+        assertEquals(device, devices.of(second));
+        assertEquals(device, new StorageDevices().of(second));
+        assertEquals(StorageDevice.UNKNOWN, devices.of(this.folder.getRoot().toPath().resolve("missing").resolve("file")));
+    }
+
+    @Test(timeout = 10000)
+    public void pathChannelsWakeWaitingReaders() throws Exception {
+        PathChannel channel = new PathChannel(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<Path>> taken = executor.submit(() -> {
+                List<Path> answer = new ArrayList<>();
+                Path path = channel.take();
+                while (path != null) {
+                    answer.add(path);
+                    path = channel.take();
+                }
+                return answer;
+            });
+            Path first = Paths.get("first");
+            Path second = Paths.get("second");
+            channel.put(first);
+            // waits for the reader to take the first one.
+            channel.put(second);
+            channel.close();
+            assertEquals(Arrays.asList(first, second), taken.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void ringBufferBroadcastsEveryElement() throws InterruptedException, ExecutionException {
+        final int consumers = 3;
+        final int count = 10000;
+        final RingBuffer<Integer> ring = new RingBuffer<>(16, consumers);
+
+        ExecutorService executor = Executors.newFixedThreadPool(consumers);
+        List<Future<Long>> sums = new ArrayList<>();
+        for (int c = 0; c < consumers; c++) {
+            final int consumer = c;
+            sums.add(executor.submit(() -> {
+                long sum = 0;
+                for (int i = 0; i < count; i++) {
+                    sum += ring.take(consumer);
+                }
+                return sum;
+            }));
+        }
+        for (int i = 0; i < count; i++) {
+            ring.publish(i);
+        }
+        for (Future<Long> sum : sums) {
+            assertEquals((long) count * (count - 1) / 2, sum.get().longValue());
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void ringBufferTellsAboutEveryPublish() throws InterruptedException {
+        final RingBuffer<Integer> ring = new RingBuffer<>(4, 2);
+        final AtomicInteger published = new AtomicInteger();
+        ring.setPublished(published::incrementAndGet);
+
+        assertNull(ring.tryTake(0));
+        assertFalse(ring.isAvailable(0));
+
+        ring.publish(7);
+        ring.publish(8);
+        assertEquals(2, published.get());
+        assertTrue(ring.isAvailable(0));
+        assertEquals(7, ring.tryTake(0).intValue());
+        assertEquals(8, ring.tryTake(0).intValue());
+        assertNull(ring.tryTake(0));
+        // the other consumer still has both.
+        assertEquals(7, ring.tryTake(1).intValue());
+        assertTrue(ring.isAvailable(1));
+    }
+
 }
@@ -19,6 +19,9 @@
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 
@@ -487,6 +490,34 @@ public class JacksonJacksumTest {
         return null;
     }
 
+    private HashResultHolder getBufferHashValue(AbstractChecksum chsum, String fileName, boolean direct) {
+        try {
+            final byte[] bytes = Files.readAllBytes(Paths.get(fileName));
+            final ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(bytes.length) : ByteBuffer.allocate(bytes.length);
+            buffer.put(bytes);
+            buffer.flip();
+            chsum.reset();
+            chsum.setEncoding(AbstractChecksum.HEX);
+            // two updates so the position of the buffer is honored.
+            final ByteBuffer head = buffer.duplicate();
+            head.limit(bytes.length / 3);
+            chsum.update(head);
+            assertFalse(head.hasRemaining());
+            buffer.position(bytes.length / 3);
+            chsum.update(buffer);
+            assertFalse(buffer.hasRemaining());
+            assertEquals(bytes.length, chsum.getLength());
+            HashResultHolder answer = new HashResultHolder();
+            answer.setAlgorithm(chsum.getName());
+            answer.setValue(chsum.getFormattedValue());
+            return answer;
+        } catch (IOException ex) {
+            Logger.getLogger(JacksonJacksumTest.class.getName()).throwing(JacksonJacksumTest.class.getName(), "getBufferHashValue", ex);
+            fail(ex.getMessage());
+        }
+        return null;
+    }
+
     private AbstractChecksum getChecksum(String algorithmName) {
         return this.getChecksum(algorithmName, false);
     }
@@ -515,6 +546,10 @@ public class JacksonJacksumTest {
     private void assertIndividualTest(String algorithmName, AbstractChecksum checksum, String imageExpected, String textExpected, String stringExpected) {
         final String imageActual = this.getFileHashValue(checksum, JacksonJacksumTest.class.getResource("/image.jpg").getFile()).getValue();
         assertEquals(algorithmName, imageExpected, imageActual);
+        final String heapBufferActual = this.getBufferHashValue(checksum, JacksonJacksumTest.class.getResource("/image.jpg").getFile(), false).getValue();
+        assertEquals(algorithmName + " heap buffer", imageExpected, heapBufferActual);
+        final String directBufferActual = this.getBufferHashValue(checksum, JacksonJacksumTest.class.getResource("/image.jpg").getFile(), true).getValue();
+        assertEquals(algorithmName + " direct buffer", imageExpected, directBufferActual);
         final String textActual = this.getFileHashValue(checksum, JacksonJacksumTest.class.getResource("/text.txt").getFile()).getValue();
         assertEquals(algorithmName, textExpected, textActual);
         final String stringActual = this.getStringHashValue(checksum, TEXT).getValue();
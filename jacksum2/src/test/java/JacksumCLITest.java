@@ -19,14 +19,23 @@
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.List;
 import jonelo.jacksum.JacksumAPI;
 import jonelo.jacksum.algorithm.Algorithm;
+import jonelo.jacksum.algorithm.ProviderSelection;
 import jonelo.jacksum.concurrent.Encoding;
+import jonelo.jacksum.concurrent.FileOrder;
 import jonelo.jacksum.concurrent.Jacksum2Cli;
+import jonelo.jacksum.concurrent.ReadMode;
+import jonelo.jacksum.concurrent.ReadSize;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import static org.junit.Assert.*;
 import org.kohsuke.args4j.CmdLineException;
 
@@ -36,15 +45,21 @@ import org.kohsuke.args4j.CmdLineException;
  */
 public class JacksumCLITest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     public JacksumCLITest() {
     }
 
     @Before
     public void setUp() {
+        // the providers measured by the runs stay out of the home directory.
+        System.setProperty(ProviderSelection.FILE_PROPERTY, this.folder.getRoot().toPath().resolve("providers.properties").toString());
     }
 
     @After
     public void tearDown() {
+        System.clearProperty(ProviderSelection.FILE_PROPERTY);
     }
 
     @Test
@@ -134,6 +149,54 @@ public class JacksumCLITest {
     }
     
     
+    @Test
+    public void hashWhileWalking() throws Exception {
+        final Path root = this.folder.getRoot().toPath();
+        for (int i = 0; i < 3; i++) {
+            final Path dir = Files.createDirectories(root.resolve("dir" + i));
+            for (int j = 0; j < 20; j++) {
+                Files.write(dir.resolve("file" + j), ("file " + i + " " + j).getBytes());
+            }
+        }
+
+        Jacksum2Cli overlapped = this.getApp("-a", "md5", "-r", root.toString());
+        assertFalse(overlapped.isWalkFirst());
+        Jacksum2Cli walkFirst = this.getApp("-a", "md5", "-r", "--walk-first", root.toString());
+        assertTrue(walkFirst.isWalkFirst());
+
+        List<String> hashes = overlapped.getFormattedFileHashes();
+        assertEquals(60, hashes.size());
+        assertEquals(walkFirst.getFormattedFileHashes(), hashes);
+    }
+
+    @Test
+    public void readOptions() throws Exception {
+        assertEquals(ReadMode.AUTO, this.getApp("aa.txt").getReadMode());
+        assertEquals(ReadMode.MAPPED, this.getApp("--read-mode", "mapped", "aa.txt").getReadMode());
+        assertEquals(0, this.getApp("aa.txt").getReadersPerDevice());
+        assertEquals(2, this.getApp("--readers", "2", "aa.txt").getReadersPerDevice());
+        assertNull(this.getApp("aa.txt").getFileOrder());
+        assertFalse(this.getApp("aa.txt").isWalkFirst());
+        assertEquals(FileOrder.INODE, this.getApp("--order", "inode", "aa.txt").getFileOrder());
+        assertTrue(this.getApp("--order", "inode", "aa.txt").isWalkFirst());
+        assertEquals(0, this.getApp("aa.txt").getReadSize());
+        assertEquals(2 * 1024 * 1024, this.getApp("--read-size", "2048", "aa.txt").getReadSize());
+        assertEquals(ReadSize.MAX, this.getApp("--read-size", "3000000", "aa.txt").getReadSize());
+        assertEquals(ReadSize.MIN, this.getApp("--read-size", "1", "aa.txt").getReadSize());
+        assertFalse(this.getApp("aa.txt").isCalibrate());
+        assertTrue(this.getApp("--calibrate").isCalibrate());
+        assertFalse(this.getApp("aa.txt").isMetrics());
+        assertTrue(this.getApp("--metrics", "aa.txt").isMetrics());
+        assertFalse(this.getApp("aa.txt").isProgress());
+        assertTrue(this.getApp("--progress", "aa.txt").isProgress());
+        assertEquals(0, this.getApp("aa.txt").getTimeout());
+        assertEquals(30000, this.getApp("--timeout", "30", "aa.txt").getTimeout());
+        assertFalse(this.getApp("aa.txt").isStream());
+        assertTrue(this.getApp("--stream", "aa.txt").isStream());
+        assertEquals(0, this.getApp("aa.txt").getStreamOrderedLines());
+        assertEquals(8, this.getApp("--stream-ordered", "8", "aa.txt").getStreamOrderedLines());
+    }
+
     @Test
     public void alternate() throws Exception {
         Jacksum2Cli app = this.getApp("-A");
@@ -196,6 +259,60 @@ public class JacksumCLITest {
     }
     
     
+    @Test
+    public void providersAreProbedBeforeHashing() throws Exception {
+        Jacksum2Cli app = this.getApp("-a", "md5+crc32", "-q", "txt:This is a test");
+        app.setOut(new PrintStream(new ByteArrayOutputStream()));
+        assertEquals(0, app.printResults());
+
+        // the winners were kept for the next run.
+        Path profile = ProviderSelection.getDefaultFile();
+        assertEquals(this.folder.getRoot().toPath(), profile.getParent());
+        assertTrue(ProviderSelection.load(profile).containsAll(Arrays.asList(Algorithm.MD5, Algorithm.CRC32)));
+    }
+
+    @Test
+    public void streamPrintsTheSameLines() throws Exception {
+        String image = JacksumCLITest.class.getResource("/image.jpg").getFile();
+
+        Jacksum2Cli app = this.getApp("-a", "crc32+md5", image);
+        ByteArrayOutputStream collected = new ByteArrayOutputStream();
+        app.setOut(new PrintStream(collected));
+        assertEquals(0, app.printResults());
+
+        app = this.getApp("--stream", "-a", "crc32+md5", image);
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        app.setOut(new PrintStream(streamed));
+        assertEquals(0, app.printResults());
+
+        assertTrue(collected.size() > 0);
+        assertEquals(collected.toString(), streamed.toString());
+    }
+
+    @Test
+    public void orderedStreamKeepsWalkOrder() throws Exception {
+        File dir = this.folder.newFolder("ordered");
+        byte[] content = new byte[256 * 1024];
+        for (int i = 0; i < 40; i++) {
+            content[i] = (byte) i;
+            // a big file every now and then to finish late.
+            Files.write(new File(dir, "file" + i).toPath(), i % 7 == 0 ? content : new byte[i]);
+        }
+
+        Jacksum2Cli app = this.getApp("-r", "-a", "crc32+md5", dir.getAbsolutePath());
+        ByteArrayOutputStream collected = new ByteArrayOutputStream();
+        app.setOut(new PrintStream(collected));
+        assertEquals(0, app.printResults());
+
+        app = this.getApp("--stream-ordered", "3", "-r", "-a", "crc32+md5", dir.getAbsolutePath());
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        app.setOut(new PrintStream(streamed));
+        assertEquals(0, app.printResults());
+
+        assertEquals(40, collected.toString().split("\\R").length);
+        assertEquals(collected.toString(), streamed.toString());
+    }
+
     @Test
     public void allAlgorithms() throws Exception{
         Jacksum2Cli app = this.getApp("-a" , "all", "aa.txt");
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2015 Federico Tello Gentile <federicotg@gmail.com>
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import jonelo.jacksum.algorithm.AbstractChecksum;
+import jonelo.jacksum.algorithm.Algorithm;
+import jonelo.jacksum.algorithm.DigestProvider;
+import jonelo.jacksum.algorithm.ProviderSelection;
+import jonelo.jacksum.util.Service;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the selected digest providers agree with the wired ones.
+ *
+ * @author Federico Tello Gentile <federicotg@gmail.com>
+ */
+public class ProviderSelectionTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final byte[] QUICK_FOX = "The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.US_ASCII);
+
+    private static String digest(AbstractChecksum checksum) {
+        checksum.update(QUICK_FOX, 0, QUICK_FOX.length);
+        return Service.format(checksum.getByteArray(), false, 0, ' ');
+    }
+
+    @Test
+    public void everyProviderHasTheCommonDigests() {
+        for (Algorithm algorithm : new Algorithm[]{Algorithm.MD5, Algorithm.SHA1, Algorithm.SHA256, Algorithm.SHA512}) {
+            final List<DigestProvider> candidates = ProviderSelection.getCandidates(algorithm);
+            assertEquals(algorithm.name(), DigestProvider.values().length, candidates.size());
+        }
+    }
+
+    @Test
+    public void selectedProvidersGiveTheSameDigests() throws Exception {
+        for (Algorithm algorithm : new Algorithm[]{Algorithm.MD5, Algorithm.SHA1, Algorithm.SHA256}) {
+            final DigestProvider selected = ProviderSelection.getSelected(algorithm);
+            assertNotNull(algorithm.name(), selected);
+            assertSame(selected, ProviderSelection.getSelected(algorithm));
+            assertEquals(algorithm.name(),
+                    digest(algorithm.getChecksumInstance(true)),
+                    digest(algorithm.getChecksumInstance(false)));
+        }
+        assertEquals("9e107d9d372bb6826bd81d3542a419d6", digest(Algorithm.MD5.getChecksumInstance(false)));
+    }
+
+    @Test
+    public void digestsBuiltOnOthersCanBeSelected() throws Exception {
+        // tree:tiger gets a tiger while its own selection is measured.
+        ProviderSelection.getSelected(Algorithm.TREE_TIGER);
+        assertEquals(digest(Algorithm.TREE_TIGER.getChecksumInstance(true)), digest(Algorithm.TREE_TIGER.getChecksumInstance(false)));
+    }
+
+    private static Properties read(Path file) throws Exception {
+        final Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        return properties;
+    }
+
+    private static void write(Properties properties, Path file) throws Exception {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            properties.store(out, null);
+        }
+    }
+
+    @Test
+    public void winnersAreKeptForThisMachine() throws Exception {
+        ProviderSelection.probe(Arrays.asList(Algorithm.MD5, Algorithm.CRC32));
+        assertFalse(ProviderSelection.probe(Arrays.asList(Algorithm.MD5, Algorithm.CRC32)));
+        final DigestProvider selected = ProviderSelection.getSelected(Algorithm.MD5);
+
+        final Path profile = this.folder.getRoot().toPath().resolve("dir").resolve("providers.properties");
+        ProviderSelection.store(profile);
+        final String md5 = Algorithm.MD5.getCanonicalName() + "@" + ProviderSelection.getMachine();
+        Properties properties = read(profile);
+        assertEquals(selected.name(), properties.getProperty(md5));
+        assertEquals("wired", properties.getProperty(Algorithm.CRC32.getCanonicalName() + "@" + ProviderSelection.getMachine()));
+
+        // other machines are left alone and do not count here.
+        properties.setProperty(md5, "wired");
+        properties.setProperty(Algorithm.MD5.getCanonicalName() + "@another", selected.name());
+        write(properties, profile);
+        try {
+            ProviderSelection.load(profile);
+            assertNull(ProviderSelection.getSelected(Algorithm.MD5));
+            ProviderSelection.store(profile);
+            assertEquals(selected.name(), read(profile).getProperty(Algorithm.MD5.getCanonicalName() + "@another"));
+        } finally {
+            properties.setProperty(md5, selected.name());
+            write(properties, profile);
+            ProviderSelection.load(profile);
+        }
+        assertSame(selected, ProviderSelection.getSelected(Algorithm.MD5));
+    }
+
+    @Test
+    public void checksumsKeepTheirImplementation() throws Exception {
+        assertNull(ProviderSelection.getSelected(Algorithm.CRC32));
+        assertTrue(ProviderSelection.getCandidates(Algorithm.ADLER32).isEmpty());
+    }
+}